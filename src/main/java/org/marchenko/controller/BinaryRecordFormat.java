@@ -0,0 +1,146 @@
+package org.marchenko.controller;
+
+import org.marchenko.exception.BadRequest;
+import org.marchenko.model.Operation;
+import org.marchenko.model.Record;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** {@code PBR1}, then per record its id, name and phone, with varint ids and lengths. */
+final class BinaryRecordFormat implements RecordFormat {
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType(BINARY_TYPE);
+
+    static final RecordFormat INSTANCE = new BinaryRecordFormat();
+
+    private static final byte[] MAGIC = {'P', 'B', 'R', '1'};
+
+    private static final int MAX_FIELD_BYTES = 1 << 20;
+
+    private static final int BUFFER = 1 << 16;
+
+    private BinaryRecordFormat() {
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public Encoder encoder(OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, BUFFER);
+        buffered.write(MAGIC);
+        return new Encoder() {
+            @Override
+            public void write(Record record) throws IOException {
+                writeVarint(buffered, record.getId());
+                writeString(buffered, record.getName());
+                writeString(buffered, record.getPhone());
+            }
+
+            @Override
+            public void flush() throws IOException {
+                buffered.flush();
+            }
+        };
+    }
+
+    @Override
+    public Decoder decoder(InputStream in) throws IOException {
+        InputStream buffered = new BufferedInputStream(in, BUFFER);
+        byte[] magic = new byte[MAGIC.length];
+        int read = readFully(buffered, magic);
+        if (read == 0) {
+            return () -> null;
+        }
+        if (read < MAGIC.length || !Arrays.equals(magic, MAGIC)) {
+            throw new BadRequest("Not a binary phone book, it must start with PBR1");
+        }
+        return new Decoder() {
+            private long entry;
+
+            @Override
+            public Operation next() throws IOException {
+                int first = buffered.read();
+                if (first < 0) {
+                    return null;
+                }
+                entry++;
+                readVarint(buffered, first);
+                String name = readString(buffered);
+                String phone = readString(buffered);
+                return new Operation(Operation.Type.CREATE, null, name, phone);
+            }
+
+            private String readString(InputStream in) throws IOException {
+                long length = readVarint(in, in.read());
+                if (length < 0) {
+                    throw new BadRequest("Field of record " + entry + " has a negative length");
+                }
+                if (length > MAX_FIELD_BYTES) {
+                    throw new BadRequest("Field of record " + entry + " is longer than " + MAX_FIELD_BYTES + " bytes");
+                }
+                byte[] bytes = new byte[(int) length];
+                if (readFully(in, bytes) < bytes.length) {
+                    throw truncated();
+                }
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            private long readVarint(InputStream in, int b) throws IOException {
+                long value = 0;
+                for (int shift = 0; ; shift += 7) {
+                    if (b < 0) {
+                        throw truncated();
+                    }
+                    // ten bytes hold 64 bits, the tenth only contributes the top bit
+                    if (shift > 63 || shift == 63 && (b & 0x7e) != 0) {
+                        throw new BadRequest("Malformed varint in record " + entry);
+                    }
+                    value |= (long) (b & 0x7f) << shift;
+                    if ((b & 0x80) == 0) {
+                        return value;
+                    }
+                    b = in.read();
+                }
+            }
+
+            private BadRequest truncated() {
+                return new BadRequest("Record " + entry + " is truncated");
+            }
+        };
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) (value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int readFully(InputStream in, byte[] bytes) throws IOException {
+        int read = 0;
+        while (read < bytes.length) {
+            int n = in.read(bytes, read, bytes.length - read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+}
@@ -0,0 +1,169 @@
+package org.marchenko.controller;
+
+import org.marchenko.exception.BadRequest;
+import org.marchenko.model.Operation;
+import org.marchenko.model.Record;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** RFC 4180 CSV in UTF-8 with a header row. */
+final class CsvRecordFormat implements RecordFormat {
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType(CSV_TYPE);
+
+    static final RecordFormat INSTANCE = new CsvRecordFormat();
+
+    private static final int BUFFER = 1 << 16;
+
+    private CsvRecordFormat() {
+    }
+
+    @Override
+    public MediaType mediaType() {
+        return new MediaType(MEDIA_TYPE, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Encoder encoder(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER);
+        writer.write("id,name,phone\r\n");
+        return new Encoder() {
+            @Override
+            public void write(Record record) throws IOException {
+                writer.write(Long.toString(record.getId()));
+                writer.write(',');
+                writeField(writer, record.getName());
+                writer.write(',');
+                writeField(writer, record.getPhone());
+                writer.write("\r\n");
+            }
+
+            @Override
+            public void flush() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    @Override
+    public Decoder decoder(InputStream in) throws IOException {
+        Rows rows = new Rows(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER));
+        List<String> header = rows.next();
+        int name = header == null ? -1 : indexOf(header, "name");
+        int phone = header == null ? -1 : indexOf(header, "phone");
+        if (header != null && (name < 0 || phone < 0)) {
+            throw new BadRequest("CSV header must have name and phone columns");
+        }
+        return () -> {
+            List<String> row = rows.next();
+            if (row == null) {
+                return null;
+            }
+            return new Operation(Operation.Type.CREATE, null, field(row, name), field(row, phone));
+        };
+    }
+
+    private static void writeField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static int indexOf(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> row, int index) {
+        return index < row.size() ? row.get(index) : null;
+    }
+
+    private static final class Rows {
+        private final Reader reader;
+
+        private final StringBuilder field = new StringBuilder();
+
+        private int row;
+
+        Rows(Reader reader) {
+            this.reader = reader;
+        }
+
+        List<String> next() throws IOException {
+            int c = reader.read();
+            while (c == '\r' || c == '\n') {
+                c = reader.read();
+            }
+            if (c < 0) {
+                return null;
+            }
+            row++;
+            List<String> fields = new ArrayList<>(4);
+            while (true) {
+                field.setLength(0);
+                if (c == '"') {
+                    c = quoted();
+                } else {
+                    while (c >= 0 && c != ',' && c != '\r' && c != '\n') {
+                        field.append((char) c);
+                        c = reader.read();
+                    }
+                }
+                fields.add(field.toString());
+                if (c != ',') {
+                    return fields;
+                }
+                c = reader.read();
+            }
+        }
+
+        private int quoted() throws IOException {
+            while (true) {
+                int c = reader.read();
+                if (c < 0) {
+                    throw new BadRequest("Unterminated quote in CSV row " + row);
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c != '"') {
+                        if (c >= 0 && c != ',' && c != '\r' && c != '\n') {
+                            throw new BadRequest("Unexpected character after a quoted field in CSV row " + row);
+                        }
+                        return c;
+                    }
+                }
+                field.append((char) c);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.marchenko.controller;
+
+import org.marchenko.storage.DeferredDurability;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/** Non-blocking writes, enabled with {@code phonebook.web.non-blocking-writes}. */
+@Component
+@Order(DeferredDurabilityFilter.ORDER)
+@ConditionalOnProperty(name = "phonebook.web.non-blocking-writes", havingValue = "true")
+public class DeferredDurabilityFilter extends OncePerRequestFilter {
+    static final int ORDER = RateLimitFilter.ORDER + 1;
+
+    private static final Logger log = LoggerFactory.getLogger(DeferredDurabilityFilter.class);
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        HttpMethod method = HttpMethod.resolve(request.getMethod());
+        return method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper buffered = new ContentCachingResponseWrapper(response);
+        DeferredDurability deferred = DeferredDurability.begin();
+        try {
+            chain.doFilter(request, buffered);
+        } finally {
+            deferred.end();
+        }
+        if (deferred.isEmpty() || response.isCommitted() || !request.isAsyncSupported()) {
+            deferred.awaitDurable();
+            buffered.copyBodyToResponse();
+            return;
+        }
+        AsyncContext async = request.startAsync(request, response);
+        async.setTimeout(0);
+        deferred.whenDurable().whenComplete((ignored, failure) ->
+                async.start(() -> respond(async, buffered, failure)));
+    }
+
+    private static void respond(AsyncContext async, ContentCachingResponseWrapper buffered, Throwable failure) {
+        try {
+            if (failure == null) {
+                buffered.copyBodyToResponse();
+            } else {
+                log.error("Write could not be made durable", failure);
+                HttpServletResponse response = (HttpServletResponse) async.getResponse();
+                response.reset();
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to send a deferred response", e);
+        } finally {
+            async.complete();
+        }
+    }
+}
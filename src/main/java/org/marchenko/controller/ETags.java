@@ -0,0 +1,77 @@
+package org.marchenko.controller;
+
+import org.marchenko.exception.PreconditionFailed;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+/** Resources carry strong tags per rendering, record pages weak ones so they can be gzipped. */
+final class ETags {
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    private static final String SMILE_SUFFIX = "-smile";
+
+    private static final String CBOR_SUFFIX = "-cbor";
+
+    private ETags() {
+    }
+
+    static String of(long version, WebRequest request) {
+        return "\"" + version + suffix(request.getHeader(HttpHeaders.ACCEPT)) + "\"";
+    }
+
+    static String weak(long version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /** Returns the version {@code If-Match} requires, {@code null} for {@code *}. */
+    static Long expectedVersion(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            String opaque = tag.substring(1, tag.length() - 1);
+            if (opaque.endsWith(SMILE_SUFFIX) || opaque.endsWith(CBOR_SUFFIX)) {
+                opaque = opaque.substring(0, opaque.lastIndexOf('-'));
+            }
+            try {
+                return Long.parseLong(opaque);
+            } catch (NumberFormatException e) {
+                // fall through, an unknown tag cannot match
+            }
+        }
+        throw new PreconditionFailed("If-Match " + ifMatch + " does not match the current version");
+    }
+
+    private static String suffix(String accept) {
+        if (accept == null) {
+            return "";
+        }
+        List<MediaType> types;
+        try {
+            types = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return "";
+        }
+        MediaType.sortBySpecificityAndQuality(types);
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            if (type.includes(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+            if (type.includes(SMILE)) {
+                return SMILE_SUFFIX;
+            }
+            if (type.includes(MediaType.APPLICATION_CBOR)) {
+                return CBOR_SUFFIX;
+            }
+        }
+        return "";
+    }
+}
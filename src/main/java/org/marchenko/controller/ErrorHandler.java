@@ -0,0 +1,46 @@
+package org.marchenko.controller;
+
+import org.marchenko.exception.BadRequest;
+import org.marchenko.exception.CreateException;
+import org.marchenko.exception.Gone;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.exception.PreconditionFailed;
+import org.marchenko.model.ErrorResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+
+/** Writes error bodies directly instead of dispatching to the error page. */
+@RestControllerAdvice
+public class ErrorHandler {
+
+    @ExceptionHandler(NotFoundException.class)
+    public ResponseEntity<ErrorResponse> notFound(NotFoundException e, HttpServletRequest request) {
+        return error(HttpStatus.NOT_FOUND, e, request);
+    }
+
+    @ExceptionHandler({BadRequest.class, CreateException.class})
+    public ResponseEntity<ErrorResponse> badRequest(RuntimeException e, HttpServletRequest request) {
+        return error(HttpStatus.BAD_REQUEST, e, request);
+    }
+
+    @ExceptionHandler(PreconditionFailed.class)
+    public ResponseEntity<ErrorResponse> preconditionFailed(PreconditionFailed e, HttpServletRequest request) {
+        return error(HttpStatus.PRECONDITION_FAILED, e, request);
+    }
+
+    @ExceptionHandler(Gone.class)
+    public ResponseEntity<ErrorResponse> gone(Gone e, HttpServletRequest request) {
+        return error(HttpStatus.GONE, e, request);
+    }
+
+    private static ResponseEntity<ErrorResponse> error(HttpStatus status, RuntimeException e,
+                                                       HttpServletRequest request) {
+        return ResponseEntity.status(status)
+                .body(new ErrorResponse(status.value(), status.getReasonPhrase(), e.getMessage(),
+                        request.getRequestURI()));
+    }
+}
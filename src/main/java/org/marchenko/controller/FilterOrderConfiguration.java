@@ -0,0 +1,26 @@
+package org.marchenko.controller;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcMetricsFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Orders the filters: rate limiting, then deferred durability, then request timing. */
+@Configuration
+public class FilterOrderConfiguration {
+
+    @Bean
+    public static BeanPostProcessor metricsFilterOrder() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof FilterRegistrationBean
+                        && ((FilterRegistrationBean<?>) bean).getFilter() instanceof WebMvcMetricsFilter) {
+                    ((FilterRegistrationBean<?>) bean).setOrder(DeferredDurabilityFilter.ORDER + 1);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,77 @@
+package org.marchenko.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Function;
+
+/** Writes a listing as NDJSON in keyset chunks of {@value #CHUNK} elements. */
+final class NdjsonStream<T> {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    static final MediaType NDJSON = MediaType.parseMediaType(MEDIA_TYPE);
+
+    static final int CHUNK = 512;
+
+    static final StreamingResponseBody EMPTY = out -> {
+    };
+
+    private static final byte NEW_LINE = '\n';
+
+    interface Chunks<T> {
+        List<T> after(Long afterId, int size);
+    }
+
+    private final ObjectWriter writer;
+
+    private final Chunks<T> chunks;
+
+    private final Function<T, Long> id;
+
+    NdjsonStream(ObjectMapper mapper, Chunks<T> chunks, Function<T, Long> id) {
+        this.writer = mapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.chunks = chunks;
+        this.id = id;
+    }
+
+    static <T> Long cursorAt(long offset, Function<Integer, List<T>> elementAt, Function<T, Long> id) {
+        if (offset == 0) {
+            return Long.MIN_VALUE;
+        }
+        if (offset - 1 > Integer.MAX_VALUE) {
+            return null;
+        }
+        List<T> previous = elementAt.apply((int) (offset - 1));
+        return previous.isEmpty() ? null : id.apply(previous.get(0));
+    }
+
+    StreamingResponseBody body(Long afterId, int limit) {
+        List<T> first = chunks.after(afterId, Math.min(CHUNK, limit));
+        return out -> {
+            List<T> chunk = first;
+            int remaining = limit;
+            while (true) {
+                write(out, chunk);
+                remaining -= chunk.size();
+                if (remaining <= 0 || chunk.size() < CHUNK) {
+                    break;
+                }
+                chunk = chunks.after(id.apply(chunk.get(chunk.size() - 1)), Math.min(CHUNK, remaining));
+            }
+        };
+    }
+
+    private void write(OutputStream out, List<T> chunk) throws IOException {
+        for (T element : chunk) {
+            writer.writeValue(out, element);
+            out.write(NEW_LINE);
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,20 @@
+package org.marchenko.controller;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+import java.util.function.Function;
+
+/** Keyset paging: a full page advertises the id of its last element. */
+final class NextCursor {
+    static final String HEADER = "X-Next-Cursor";
+
+    private NextCursor() {
+    }
+
+    static <T> List<T> write(HttpServletResponse response, List<T> page, int pageSize, Function<T, Long> id) {
+        if (page != null && !page.isEmpty() && page.size() >= pageSize) {
+            response.setHeader(HEADER, String.valueOf(id.apply(page.get(page.size() - 1))));
+        }
+        return page;
+    }
+}
@@ -0,0 +1,233 @@
+package org.marchenko.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.marchenko.model.ErrorResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Sheds load ahead of the controllers, enabled with {@code phonebook.web.rate-limit.enabled}. */
+@Component
+@Order(RateLimitFilter.ORDER)
+@ConditionalOnProperty(name = "phonebook.web.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+    static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    static final String REJECTED = "phonebook.web.rejected";
+
+    private final Map<Endpoint, Limit> limits = new EnumMap<>(Endpoint.class);
+
+    private final String clientHeader;
+
+    private final int maxClients;
+
+    private final ObjectMapper mapper;
+
+    @Autowired
+    public RateLimitFilter(Environment environment,
+                           MeterRegistry registry,
+                           ObjectMapper mapper,
+                           @Value("${phonebook.web.rate-limit.client-header:}") String clientHeader,
+                           @Value("${phonebook.web.rate-limit.max-clients:100000}") int maxClients) {
+        for (Endpoint endpoint : Endpoint.values()) {
+            limits.put(endpoint, new Limit(environment, registry, endpoint));
+        }
+        this.clientHeader = clientHeader.trim();
+        this.maxClients = maxClients;
+        this.mapper = mapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith("/actuator");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Limit limit = limits.get(Endpoint.of(request));
+        long wait = limit.take(client(request), System.nanoTime(), maxClients);
+        if (wait > 0) {
+            limit.rateRejected.increment();
+            reject(request, response, HttpStatus.TOO_MANY_REQUESTS, wait,
+                    "Rate limit of " + limit.name + " requests exceeded");
+            return;
+        }
+        if (!limit.enter()) {
+            limit.concurrencyRejected.increment();
+            reject(request, response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Too many " + limit.name + " requests in progress");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.exit();
+        }
+    }
+
+    private String client(HttpServletRequest request) {
+        String client = clientHeader.isEmpty() ? null : request.getHeader(clientHeader);
+        return client == null || client.isEmpty() ? request.getRemoteAddr() : client;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, HttpStatus status, long waitNanos,
+                        String message) throws IOException {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER,
+                String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        mapper.writeValue(response.getOutputStream(),
+                new ErrorResponse(status.value(), status.getReasonPhrase(), message, request.getRequestURI()));
+    }
+
+    enum Endpoint {
+        SEARCH, READ, WRITE;
+
+        static Endpoint of(HttpServletRequest request) {
+            HttpMethod method = HttpMethod.resolve(request.getMethod());
+            if (method != HttpMethod.GET && method != HttpMethod.HEAD && method != HttpMethod.OPTIONS) {
+                return WRITE;
+            }
+            String name = request.getParameter("name");
+            boolean search = "/users".equals(request.getRequestURI()) && name != null && !name.trim().isEmpty();
+            return search ? SEARCH : READ;
+        }
+    }
+
+    private static final class Limit {
+        private static final int EVICTION_SAMPLE = 8;
+
+        final String name;
+
+        final long interval;
+
+        final long tolerance;
+
+        final int concurrency;
+
+        final AtomicInteger inFlight = new AtomicInteger();
+
+        final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+        final TokenBucket overflow = new TokenBucket(System.nanoTime());
+
+        final Lock sweeping = new ReentrantLock();
+
+        Iterator<Map.Entry<String, TokenBucket>> sweep = Collections.emptyIterator();
+
+        final Counter rateRejected;
+
+        final Counter concurrencyRejected;
+
+        Limit(Environment environment, MeterRegistry registry, Endpoint endpoint) {
+            name = endpoint.name().toLowerCase(Locale.ROOT);
+            String prefix = "phonebook.web.rate-limit." + name + ".";
+            int rate = environment.getProperty(prefix + "rate", Integer.class, 0);
+            int burst = environment.getProperty(prefix + "burst", Integer.class, rate);
+            concurrency = environment.getProperty(prefix + "concurrency", Integer.class, 0);
+            interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+            tolerance = interval * (Math.max(1, burst) - 1);
+            rateRejected = Counter.builder(REJECTED)
+                    .tags("endpoint", name, "reason", "rate")
+                    .description("Requests shed before reaching a controller")
+                    .register(registry);
+            concurrencyRejected = Counter.builder(REJECTED)
+                    .tags("endpoint", name, "reason", "concurrency")
+                    .description("Requests shed before reaching a controller")
+                    .register(registry);
+        }
+
+        long take(String client, long now, int maxClients) {
+            if (interval == 0) {
+                return 0;
+            }
+            return bucket(client, now, maxClients).tryTake(now, interval, tolerance);
+        }
+
+        private TokenBucket bucket(String client, long now, int maxClients) {
+            TokenBucket bucket = buckets.get(client);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (buckets.size() >= maxClients && !evictIdle(now)) {
+                return overflow;
+            }
+            bucket = new TokenBucket(now);
+            TokenBucket existing = buckets.putIfAbsent(client, bucket);
+            return existing == null ? bucket : existing;
+        }
+
+        private boolean evictIdle(long now) {
+            if (!sweeping.tryLock()) {
+                return false;
+            }
+            try {
+                boolean evicted = false;
+                for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                    if (!sweep.hasNext()) {
+                        sweep = buckets.entrySet().iterator();
+                        if (!sweep.hasNext()) {
+                            break;
+                        }
+                    }
+                    Map.Entry<String, TokenBucket> entry = sweep.next();
+                    if (entry.getValue().isFull(now) && buckets.remove(entry.getKey(), entry.getValue())) {
+                        evicted = true;
+                    }
+                }
+                return evicted;
+            } finally {
+                sweeping.unlock();
+            }
+        }
+
+        boolean enter() {
+            if (concurrency <= 0) {
+                return true;
+            }
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= concurrency) {
+                    return false;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void exit() {
+            if (concurrency > 0) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,28 +1,157 @@
 package org.marchenko.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.marchenko.model.ImportResult;
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
 import org.marchenko.model.Record;
+import org.marchenko.model.RecordChanges;
 import org.marchenko.service.RecordService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 public class RecordController {
+    static final long MAX_WAIT_SECONDS = 60;
+
+    static final int IMPORT_BATCH = 1000;
+
     private final RecordService recordService;
 
+    private final ObjectMapper mapper;
+
     @Autowired
-    public RecordController(RecordService recordService) {
+    public RecordController(RecordService recordService, ObjectMapper mapper) {
         this.recordService = recordService;
+        this.mapper = mapper;
     }
 
+    /** The tag is read before the page, so it is never newer than the page. */
     @GetMapping("/users/{user_id}/records")
+    public ResponseEntity<List<Record>> getRecords(@PathVariable("user_id") Long userId,
+                                                   @RequestParam(required = false, defaultValue = "0") Integer pageNumber,
+                                                   @RequestParam(required = false, defaultValue = "3") Integer pageSize,
+                                                   @RequestParam(required = false) Long after,
+                                                   HttpServletResponse response,
+                                                   WebRequest request) {
+        String etag = ETags.weak(recordService.recordsVersion(userId));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<Record> records = after == null
+                ? recordService.findAllRecords(userId, pageNumber, pageSize)
+                : recordService.findRecordsAfter(userId, after, pageSize);
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(NextCursor.write(response, records, pageSize, Record::getId));
+    }
+
+    @GetMapping("/records/by_phone")
     @ResponseStatus(HttpStatus.OK)
-    public List<Record> getRecords(@PathVariable("user_id") Long userId,
-                                   @RequestParam(required = false, defaultValue = "0") Integer pageNumber,
-                                   @RequestParam(required = false, defaultValue = "3") Integer pageSize) {
-        return recordService.findAllRecords(userId, pageNumber, pageSize);
+    public List<PhoneHolder> getPhoneHolders(@RequestParam String phone,
+                                             @RequestParam(required = false, defaultValue = "0") Long after,
+                                             @RequestParam(required = false, defaultValue = "20") Integer pageSize,
+                                             HttpServletResponse response) {
+        return NextCursor.write(response, recordService.findPhoneHolders(phone, after, pageSize), pageSize,
+                PhoneHolder::getRecordId);
+    }
+
+    @GetMapping(value = "/users/{user_id}/records", produces = NdjsonStream.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamRecords(@PathVariable("user_id") Long userId,
+                                                               @RequestParam(required = false, defaultValue = "0") Integer pageNumber,
+                                                               @RequestParam(required = false, defaultValue = "3") Integer pageSize,
+                                                               @RequestParam(required = false) Long after) {
+        Long start = after != null ? after : NdjsonStream.cursorAt((long) pageNumber * pageSize,
+                offset -> recordService.findAllRecords(userId, offset, 1), Record::getId);
+        StreamingResponseBody body = start == null
+                ? NdjsonStream.EMPTY
+                : new NdjsonStream<>(mapper, (afterId, size) -> recordService.findRecordsAfter(userId, afterId, size),
+                Record::getId).body(start, pageSize);
+        return ResponseEntity.ok().contentType(NdjsonStream.NDJSON).body(body);
+    }
+
+    @GetMapping("/users/{user_id}/records/changes")
+    public DeferredResult<RecordChanges> getChanges(@PathVariable("user_id") Long userId,
+                                                    @RequestParam Long since,
+                                                    @RequestParam(required = false, defaultValue = "1000") Integer limit,
+                                                    @RequestParam(required = false, defaultValue = "0") Integer wait) {
+        RecordChanges changes = recordService.findChanges(userId, since, limit);
+        if (!changes.getChanges().isEmpty() || wait <= 0) {
+            DeferredResult<RecordChanges> result = new DeferredResult<>();
+            result.setResult(changes);
+            return result;
+        }
+        DeferredResult<RecordChanges> result = new DeferredResult<>(
+                TimeUnit.SECONDS.toMillis(Math.min(wait, MAX_WAIT_SECONDS)), changes);
+        CompletableFuture<Void> changed = recordService.awaitChange(userId, changes.getSequence());
+        result.onCompletion(() -> changed.cancel(false));
+        changed.thenRunAsync(() -> {
+            try {
+                result.setResult(recordService.findChanges(userId, since, limit));
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    @GetMapping(value = "/users/{user_id}/records/export",
+            produces = {RecordFormat.CSV_TYPE, RecordFormat.BINARY_TYPE})
+    public ResponseEntity<StreamingResponseBody> exportRecords(@PathVariable("user_id") Long userId,
+                                                               @RequestHeader HttpHeaders headers) {
+        RecordFormat format = RecordFormat.accepted(new ArrayList<>(headers.getAccept()));
+        List<Record> first = recordService.findRecordsAfter(userId, Long.MIN_VALUE, NdjsonStream.CHUNK);
+        StreamingResponseBody body = out -> {
+            RecordFormat.Encoder encoder = format.encoder(out);
+            List<Record> chunk = first;
+            while (true) {
+                for (Record record : chunk) {
+                    encoder.write(record);
+                }
+                encoder.flush();
+                if (chunk.size() < NdjsonStream.CHUNK) {
+                    break;
+                }
+                chunk = recordService.findRecordsAfter(userId, chunk.get(chunk.size() - 1).getId(), NdjsonStream.CHUNK);
+            }
+        };
+        return ResponseEntity.ok().contentType(format.mediaType()).body(body);
+    }
+
+    @PostMapping(value = "/users/{user_id}/records/import",
+            consumes = {RecordFormat.CSV_TYPE, RecordFormat.BINARY_TYPE})
+    public ImportResult importRecords(@PathVariable("user_id") Long userId,
+                                      @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                      InputStream body) throws IOException {
+        RecordFormat.Decoder decoder = RecordFormat.of(contentType).decoder(body);
+        ImportResult result = new ImportResult();
+        List<Operation> batch = new ArrayList<>(IMPORT_BATCH);
+        for (Operation operation = decoder.next(); operation != null; operation = decoder.next()) {
+            batch.add(operation);
+            if (batch.size() == IMPORT_BATCH) {
+                result.add(recordService.applyOperations(userId, batch));
+                batch.clear();
+            }
+        }
+        // an empty body still goes through one batch, so an unknown user is reported
+        if (!batch.isEmpty() || result.getCreated() + result.getFailed() == 0) {
+            result.add(recordService.applyOperations(userId, batch));
+        }
+        return result;
     }
 
     @PostMapping("/users/{user_id}/records")
@@ -33,6 +162,13 @@ public class RecordController {
         return recordService.createRecord(userId, name, phone);
     }
 
+    @PostMapping("/users/{user_id}/records/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<OperationResult<Record>> applyOperations(@PathVariable("user_id") Long userId,
+                                                         @RequestBody List<Operation> operations) {
+        return recordService.applyOperations(userId, operations);
+    }
+
     @DeleteMapping("/users/{user_id}/records/{record_id}")
     @ResponseStatus(HttpStatus.OK)
     public void deleteRecord(@PathVariable("user_id") Long userId,
@@ -42,19 +178,28 @@ public class RecordController {
     }
 
     @GetMapping("/users/{user_id}/records/{record_id}")
-    @ResponseStatus(HttpStatus.OK)
-    public Record findRecordById(@PathVariable("user_id") Long userId,
-                                 @PathVariable("record_id") Long recordId) {
-        return recordService.findRecordById(userId, recordId);
+    public ResponseEntity<Record> findRecordById(@PathVariable("user_id") Long userId,
+                                                 @PathVariable("record_id") Long recordId,
+                                                 WebRequest request) {
+        Record record = recordService.findRecordById(userId, recordId);
+        String etag = ETags.of(record.getVersion(), request);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(record);
     }
 
     @PatchMapping("/users/{user_id}/records/{record_id}")
-    @ResponseStatus(HttpStatus.OK)
-    public Record updateRecord(@PathVariable("user_id") Long userId,
-                               @PathVariable("record_id") Long recordId,
-                               @RequestParam(required = false) String name,
-                               @RequestParam(required = false) String phone) {
-        return recordService.updateRecord(userId, recordId, name, phone);
+    public ResponseEntity<Record> updateRecord(@PathVariable("user_id") Long userId,
+                                               @PathVariable("record_id") Long recordId,
+                                               @RequestParam(required = false) String name,
+                                               @RequestParam(required = false) String phone,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                               WebRequest request) {
+        Record record = ifMatch == null
+                ? recordService.updateRecord(userId, recordId, name, phone)
+                : recordService.updateRecord(userId, recordId, name, phone, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(record.getVersion(), request)).varyBy(HttpHeaders.ACCEPT).body(record);
     }
 
     @GetMapping("/users/{user_id}/records/by_phone")
@@ -0,0 +1,52 @@
+package org.marchenko.controller;
+
+import org.marchenko.model.Operation;
+import org.marchenko.model.Record;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+interface RecordFormat {
+    String CSV_TYPE = "text/csv";
+
+    String BINARY_TYPE = "application/x-phonebook-records";
+
+    MediaType mediaType();
+
+    Encoder encoder(OutputStream out) throws IOException;
+
+    Decoder decoder(InputStream in) throws IOException;
+
+    interface Encoder {
+        void write(Record record) throws IOException;
+
+        void flush() throws IOException;
+    }
+
+    interface Decoder {
+        /** Returns {@code null} after the last entry. */
+        Operation next() throws IOException;
+    }
+
+    static RecordFormat accepted(List<MediaType> accepted) {
+        MediaType.sortBySpecificityAndQuality(accepted);
+        for (MediaType type : accepted) {
+            if (type.includes(CsvRecordFormat.MEDIA_TYPE)) {
+                return CsvRecordFormat.INSTANCE;
+            }
+            if (type.includes(BinaryRecordFormat.MEDIA_TYPE)) {
+                return BinaryRecordFormat.INSTANCE;
+            }
+        }
+        return CsvRecordFormat.INSTANCE;
+    }
+
+    static RecordFormat of(MediaType contentType) {
+        return BinaryRecordFormat.MEDIA_TYPE.includes(contentType)
+                ? BinaryRecordFormat.INSTANCE
+                : CsvRecordFormat.INSTANCE;
+    }
+}
@@ -0,0 +1,31 @@
+package org.marchenko.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A token bucket kept as the moment it is full again, moved with a compare-and-set. */
+final class TokenBucket {
+    private final AtomicLong fullAt;
+
+    TokenBucket(long now) {
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /** Returns zero once a token is taken, otherwise the nanoseconds until one is available. */
+    long tryTake(long now, long interval, long tolerance) {
+        while (true) {
+            long current = fullAt.get();
+            long from = Math.max(current, now);
+            long wait = from - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, from + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    boolean isFull(long now) {
+        return fullAt.get() - now <= 0;
+    }
+}
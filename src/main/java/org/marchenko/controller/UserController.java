@@ -1,11 +1,19 @@
 package org.marchenko.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
 import org.marchenko.model.User;
 import org.marchenko.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
 import java.util.List;
 
 @RestController
@@ -13,21 +21,53 @@ public class UserController {
 
     private final UserService userService;
 
+    private final ObjectMapper mapper;
+
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper mapper) {
         this.userService = userService;
+        this.mapper = mapper;
     }
 
     @GetMapping("/users")
     @ResponseStatus(HttpStatus.OK)
     public List<User> getUsers(@RequestParam(required = false) String name,
                                @RequestParam(required = false, defaultValue = "0") Integer pageNumber,
-                               @RequestParam(required = false, defaultValue = "3") Integer pageSize) {
+                               @RequestParam(required = false, defaultValue = "3") Integer pageSize,
+                               @RequestParam(required = false) Long after,
+                               HttpServletResponse response) {
+        List<User> users;
         if (name == null || name.trim().isEmpty()) {
-            return userService.findAllUsers(pageNumber, pageSize);
+            users = after == null
+                    ? userService.findAllUsers(pageNumber, pageSize)
+                    : userService.findUsersAfter(after, pageSize);
         } else {
-            return userService.findUsersByName(name, pageNumber, pageSize);
+            users = after == null
+                    ? userService.findUsersByName(name, pageNumber, pageSize)
+                    : userService.findUsersByNameAfter(name, after, pageSize);
         }
+        return NextCursor.write(response, users, pageSize, User::getId);
+    }
+
+    @GetMapping(value = "/users", produces = NdjsonStream.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(required = false) String name,
+                                                             @RequestParam(required = false, defaultValue = "0") Integer pageNumber,
+                                                             @RequestParam(required = false, defaultValue = "3") Integer pageSize,
+                                                             @RequestParam(required = false) Long after) {
+        NdjsonStream<User> stream;
+        Long start;
+        if (name == null || name.trim().isEmpty()) {
+            stream = new NdjsonStream<>(mapper, userService::findUsersAfter, User::getId);
+            start = after != null ? after : NdjsonStream.cursorAt((long) pageNumber * pageSize,
+                    offset -> userService.findAllUsers(offset, 1), User::getId);
+        } else {
+            stream = new NdjsonStream<>(mapper, (afterId, size) -> userService.findUsersByNameAfter(name, afterId, size),
+                    User::getId);
+            start = after != null ? after : NdjsonStream.cursorAt((long) pageNumber * pageSize,
+                    offset -> userService.findUsersByName(name, offset, 1), User::getId);
+        }
+        StreamingResponseBody body = start == null ? NdjsonStream.EMPTY : stream.body(start, pageSize);
+        return ResponseEntity.ok().contentType(NdjsonStream.NDJSON).body(body);
     }
 
 
@@ -38,6 +78,12 @@ public class UserController {
         return userService.createUser(name, phone);
     }
 
+    @PostMapping("/users/batch")
+    @ResponseStatus(HttpStatus.OK)
+    public List<OperationResult<User>> applyOperations(@RequestBody List<Operation> operations) {
+        return userService.applyOperations(operations);
+    }
+
     @DeleteMapping("/users/{user_id}")
     @ResponseStatus(HttpStatus.OK)
     public void deleteUser(@PathVariable("user_id") Long userId) {
@@ -45,17 +91,32 @@ public class UserController {
     }
 
     @GetMapping("/users/{user_id}")
+    public ResponseEntity<User> findUserById(@PathVariable("user_id") Long userId,
+                                             WebRequest request) {
+        User user = userService.findUserById(userId);
+        String etag = ETags.of(user.getVersion(), request);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(user);
+    }
+
+    @GetMapping("/users/by_phone")
     @ResponseStatus(HttpStatus.OK)
-    public User findUserById(@PathVariable("user_id") Long userId) {
-        return userService.findUserById(userId);
+    public User findUserByPhone(@RequestParam String phone) {
+        return userService.findUserByPhone(phone);
     }
 
     @PatchMapping("/users/{user_id}")
-    @ResponseStatus(HttpStatus.OK)
-    public User updateUser(@PathVariable("user_id") Long userId,
-                           @RequestParam(required = false) String name,
-                           @RequestParam(required = false) String phone) {
-        return userService.updateUser(userId, name, phone);
+    public ResponseEntity<User> updateUser(@PathVariable("user_id") Long userId,
+                                           @RequestParam(required = false) String name,
+                                           @RequestParam(required = false) String phone,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                           WebRequest request) {
+        User user = ifMatch == null
+                ? userService.updateUser(userId, name, phone)
+                : userService.updateUser(userId, name, phone, ETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(ETags.of(user.getVersion(), request)).varyBy(HttpHeaders.ACCEPT).body(user);
     }
 
 }
@@ -6,6 +6,6 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 @ResponseStatus(HttpStatus.BAD_REQUEST)
 public class BadRequest extends RuntimeException{
     public BadRequest(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
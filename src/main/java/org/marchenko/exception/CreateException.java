@@ -6,7 +6,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 @ResponseStatus(HttpStatus.BAD_REQUEST)
 public class CreateException extends RuntimeException{
     public CreateException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 }
 
@@ -0,0 +1,11 @@
+package org.marchenko.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class Gone extends RuntimeException {
+    public Gone(String message) {
+        super(message, null, false, false);
+    }
+}
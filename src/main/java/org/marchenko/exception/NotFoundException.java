@@ -3,9 +3,10 @@ package org.marchenko.exception;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+/** Expected outcome of most failed requests, so it captures no stack trace. */
 @ResponseStatus(HttpStatus.NOT_FOUND)
 public class NotFoundException extends RuntimeException{
     public NotFoundException(String message){
-        super(message);
+        super(message, null, false, false);
     }
 }
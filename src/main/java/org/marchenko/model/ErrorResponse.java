@@ -0,0 +1,32 @@
+package org.marchenko.model;
+
+import lombok.Getter;
+
+@Getter
+public class ErrorResponse {
+
+    private final int status;
+
+    private final String error;
+
+    private final String message;
+
+    private final String path;
+
+    public ErrorResponse(int status, String error, String message, String path) {
+        this.status = status;
+        this.error = error;
+        this.message = message;
+        this.path = path;
+    }
+
+    @Override
+    public String toString() {
+        return "ErrorResponse{" +
+                "status=" + status +
+                ", error='" + error + '\'' +
+                ", message='" + message + '\'' +
+                ", path='" + path + '\'' +
+                '}';
+    }
+}
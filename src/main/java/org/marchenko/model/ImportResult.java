@@ -0,0 +1,67 @@
+package org.marchenko.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class ImportResult {
+    public static final int MAX_FAILURES = 100;
+
+    private long created;
+
+    private long failed;
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    public void add(List<OperationResult<Record>> results) {
+        for (OperationResult<Record> result : results) {
+            long entry = created + failed + 1;
+            if (result.getError() == null) {
+                created++;
+                continue;
+            }
+            failed++;
+            if (failures.size() < MAX_FAILURES) {
+                failures.add(new Failure(entry, result.getStatus(), result.getError()));
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ImportResult{" +
+                "created=" + created +
+                ", failed=" + failed +
+                ", failures=" + failures +
+                '}';
+    }
+
+    @Getter
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Failure {
+
+        private final long entry;
+
+        private final int status;
+
+        private final String error;
+
+        public Failure(long entry, int status, String error) {
+            this.entry = entry;
+            this.status = status;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return "Failure{" +
+                    "entry=" + entry +
+                    ", status=" + status +
+                    ", error='" + error + '\'' +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.marchenko.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class Operation {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    private Type type;
+
+    private Long id;
+
+    private String name;
+
+    private String phone;
+
+    public Operation(Type type, Long id, String name, String phone) {
+        this.type = type;
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+    }
+
+    @Override
+    public String toString() {
+        return "Operation{" +
+                "type=" + type +
+                ", id=" + id +
+                ", name='" + name + '\'' +
+                ", phone='" + phone + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package org.marchenko.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OperationResult<T> {
+
+    private final int status;
+
+    private final T value;
+
+    private final String error;
+
+    private OperationResult(int status, T value, String error) {
+        this.status = status;
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> OperationResult<T> ok(HttpStatus status, T value) {
+        return new OperationResult<>(status.value(), value, null);
+    }
+
+    public static <T> OperationResult<T> failed(RuntimeException e) {
+        ResponseStatus responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+        HttpStatus status = responseStatus == null ? HttpStatus.INTERNAL_SERVER_ERROR : responseStatus.code();
+        return new OperationResult<>(status.value(), null, e.getMessage());
+    }
+
+    @Override
+    public String toString() {
+        return "OperationResult{" +
+                "status=" + status +
+                ", value=" + value +
+                ", error='" + error + '\'' +
+                '}';
+    }
+}
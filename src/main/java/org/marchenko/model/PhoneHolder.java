@@ -0,0 +1,37 @@
+package org.marchenko.model;
+
+import lombok.Getter;
+
+@Getter
+public class PhoneHolder {
+
+    private final long userId;
+
+    private final long recordId;
+
+    public PhoneHolder(long userId, long recordId) {
+        this.userId = userId;
+        this.recordId = recordId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PhoneHolder that = (PhoneHolder) o;
+        return userId == that.userId && recordId == that.recordId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(userId) + Long.hashCode(recordId);
+    }
+
+    @Override
+    public String toString() {
+        return "PhoneHolder{" +
+                "userId=" + userId +
+                ", recordId=" + recordId +
+                '}';
+    }
+}
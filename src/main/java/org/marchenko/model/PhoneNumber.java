@@ -0,0 +1,58 @@
+package org.marchenko.model;
+
+/** Numbers pack into positive keys, strings that are no number hash to negative ones. */
+public final class PhoneNumber {
+    public static final int MAX_DIGITS = 15;
+
+    private static final int COUNT_SHIFT = 50;
+
+    private PhoneNumber() {
+    }
+
+    public static long key(String phone) {
+        if (phone == null) {
+            return 0;
+        }
+        long digits = 0;
+        int count = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++count > MAX_DIGITS) {
+                    return hash(phone);
+                }
+                digits = digits * 10 + (c - '0');
+            } else if (!isSeparator(c) && !(c == '+' && count == 0 && i == firstNonBlank(phone))) {
+                return hash(phone);
+            }
+        }
+        return count == 0 ? hash(phone) : (long) count << COUNT_SHIFT | digits;
+    }
+
+    public static boolean isNumber(long key) {
+        return key > 0;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '-' || c == '.' || c == '/' || c == '(' || c == ')';
+    }
+
+    private static int firstNonBlank(String phone) {
+        int i = 0;
+        while (i < phone.length() && phone.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static long hash(String phone) {
+        long hash = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            hash = (hash + phone.charAt(i)) * 0x9E3779B97F4A7C15L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        return hash | Long.MIN_VALUE;
+    }
+}
@@ -1,10 +1,9 @@
 package org.marchenko.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.Objects;
-
 @Getter
 public class Record {
 
@@ -14,18 +13,42 @@ public class Record {
     @Setter
     private String name;
 
-    @Setter
     private String phone;
 
+    private long phoneKey;
+
+    @Setter
+    private long version;
+
     public Record(String name, String phone) {
         this.name = name;
         this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
     }
 
     public Record(Long id, String name, String phone) {
         this.id = id;
         this.name = name;
         this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
+    }
+
+    public Record(Long id, String name, String phone, long version) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
+        this.version = version;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
+    }
+
+    @JsonIgnore
+    public long getPhoneKey() {
+        return phoneKey;
     }
 
     @Override
@@ -33,12 +56,12 @@ public class Record {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Record that = (Record) o;
-        return name.equals(that.name) && phone.equals(that.phone);
+        return version == that.version && name.equals(that.name) && phoneKey == that.phoneKey;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, phone);
+        return 31 * (31 * name.hashCode() + Long.hashCode(phoneKey)) + Long.hashCode(version);
     }
 
     @Override
@@ -47,6 +70,7 @@ public class Record {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", phone='" + phone + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
@@ -0,0 +1,34 @@
+package org.marchenko.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RecordChange {
+
+    private final long sequence;
+
+    private final Operation.Type type;
+
+    private final long id;
+
+    private final Record record;
+
+    public RecordChange(long sequence, Operation.Type type, long id, Record record) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.record = record;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordChange{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", id=" + id +
+                ", record=" + record +
+                '}';
+    }
+}
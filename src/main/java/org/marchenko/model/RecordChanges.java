@@ -0,0 +1,26 @@
+package org.marchenko.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class RecordChanges {
+
+    private final long sequence;
+
+    private final List<RecordChange> changes;
+
+    public RecordChanges(long sequence, List<RecordChange> changes) {
+        this.sequence = sequence;
+        this.changes = changes;
+    }
+
+    @Override
+    public String toString() {
+        return "RecordChanges{" +
+                "sequence=" + sequence +
+                ", changes=" + changes +
+                '}';
+    }
+}
@@ -1,10 +1,9 @@
 package org.marchenko.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.*;
-
 @Getter
 public class User {
 
@@ -14,20 +13,42 @@ public class User {
     @Setter
     private String name;
 
-    @Setter
     private String phone;
 
-    private final Map<Long, Record> records = new HashMap<>();
+    private long phoneKey;
+
+    @Setter
+    private long version;
 
     public User(String name, String phone) {
         this.name = name;
         this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
     }
 
     public User(Long id, String name, String phone) {
         this.id = id;
         this.name = name;
         this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
+    }
+
+    public User(Long id, String name, String phone, long version) {
+        this.id = id;
+        this.name = name;
+        this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
+        this.version = version;
+    }
+
+    public void setPhone(String phone) {
+        this.phone = phone;
+        this.phoneKey = PhoneNumber.key(phone);
+    }
+
+    @JsonIgnore
+    public long getPhoneKey() {
+        return phoneKey;
     }
 
     @Override
@@ -35,12 +56,12 @@ public class User {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         User user = (User) o;
-        return name.equals(user.name) && phone.equals(user.phone);
+        return version == user.version && name.equals(user.name) && phoneKey == user.phoneKey;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(name, phone);
+        return 31 * (31 * name.hashCode() + Long.hashCode(phoneKey)) + Long.hashCode(version);
     }
 
     @Override
@@ -49,6 +70,7 @@ public class User {
                 "id=" + id +
                 ", name='" + name + '\'' +
                 ", phone='" + phone + '\'' +
+                ", version=" + version +
                 '}';
     }
 
@@ -0,0 +1,64 @@
+package org.marchenko.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/** Caching decorators, enabled with {@code phonebook.cache.enabled}. */
+@Configuration
+@ConditionalOnProperty(name = "phonebook.cache.enabled", havingValue = "true")
+public class CacheConfiguration {
+
+    @Bean
+    @Primary
+    public CachingRecordService cachingRecordService(RecordServiceImpl recordService,
+                                                     ObjectProvider<CoalescingRecordService> coalescing,
+                                                     @Value("${phonebook.cache.maximum-size:10000}") int maximumSize,
+                                                     @Value("${phonebook.cache.ttl-seconds:0}") long ttlSeconds) {
+        RecordService delegate = coalescing.getIfAvailable();
+        return new CachingRecordService(delegate == null ? recordService : delegate,
+                new LruCache<>(maximumSize, ttlSeconds));
+    }
+
+    @Bean
+    @Primary
+    public CachingUserService cachingUserService(UserServiceImpl userService,
+                                                 ObjectProvider<CoalescingUserService> coalescing,
+                                                 CachingRecordService records,
+                                                 @Value("${phonebook.cache.maximum-size:10000}") int maximumSize,
+                                                 @Value("${phonebook.cache.ttl-seconds:0}") long ttlSeconds) {
+        UserService delegate = coalescing.getIfAvailable();
+        return new CachingUserService(delegate == null ? userService : delegate,
+                new LruCache<>(maximumSize, ttlSeconds), records);
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(CachingUserService users, CachingRecordService records) {
+        return registry -> {
+            bind(registry, "users", users.cache());
+            bind(registry, "records", records.cache());
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String name, LruCache<?, ?> cache) {
+        FunctionCounter.builder("phonebook.cache.gets", cache, LruCache::hitCount)
+                .tags("cache", name, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("phonebook.cache.gets", cache, LruCache::missCount)
+                .tags("cache", name, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("phonebook.cache.evictions", cache, LruCache::evictionCount)
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("phonebook.cache.size", cache, LruCache::size)
+                .tag("cache", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,145 @@
+package org.marchenko.service;
+
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
+import org.marchenko.model.Record;
+import org.marchenko.model.RecordChanges;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+public class CachingRecordService implements RecordService {
+    private final RecordService delegate;
+
+    private final LruCache<Key, Record> cache;
+
+    private final Generations generations = new Generations();
+
+    public CachingRecordService(RecordService delegate, LruCache<Key, Record> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    public LruCache<Key, Record> cache() {
+        return cache;
+    }
+
+    @Override
+    public List<Record> findAllRecords(Long userId, Integer pageNumber, Integer pageSize) {
+        return delegate.findAllRecords(userId, pageNumber, pageSize);
+    }
+
+    @Override
+    public List<Record> findRecordsAfter(Long userId, Long afterId, Integer pageSize) {
+        return delegate.findRecordsAfter(userId, afterId, pageSize);
+    }
+
+    @Override
+    public Record createRecord(Long userId, String name, String phone) {
+        return delegate.createRecord(userId, name, phone);
+    }
+
+    @Override
+    public Record findRecordById(Long userId, Long recordId) {
+        return cache.get(key(userId, recordId), key -> delegate.findRecordById(userId, recordId));
+    }
+
+    @Override
+    public Record findRecordByPhone(Long userId, String phone) {
+        return delegate.findRecordByPhone(userId, phone);
+    }
+
+    @Override
+    public List<PhoneHolder> findPhoneHolders(String phone, Long afterRecordId, Integer pageSize) {
+        return delegate.findPhoneHolders(phone, afterRecordId, pageSize);
+    }
+
+    @Override
+    public Record deleteRecord(Long userId, Long recordId) {
+        try {
+            return delegate.deleteRecord(userId, recordId);
+        } finally {
+            cache.invalidate(key(userId, recordId));
+        }
+    }
+
+    @Override
+    public Record updateRecord(Long userId, Long recordId, String name, String phone) {
+        return updateRecord(userId, recordId, name, phone, null);
+    }
+
+    @Override
+    public Record updateRecord(Long userId, Long recordId, String name, String phone, Long expectedVersion) {
+        try {
+            return delegate.updateRecord(userId, recordId, name, phone, expectedVersion);
+        } finally {
+            cache.invalidate(key(userId, recordId));
+        }
+    }
+
+    @Override
+    public long recordsVersion(Long userId) {
+        return delegate.recordsVersion(userId);
+    }
+
+    @Override
+    public List<OperationResult<Record>> applyOperations(Long userId, List<Operation> operations) {
+        try {
+            return delegate.applyOperations(userId, operations);
+        } finally {
+            if (operations != null) {
+                for (Operation operation : operations) {
+                    if (operation != null && operation.getId() != null) {
+                        cache.invalidate(key(userId, operation.getId()));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public RecordChanges findChanges(Long userId, Long since, Integer limit) {
+        return delegate.findChanges(userId, since, limit);
+    }
+
+    @Override
+    public CompletableFuture<Void> awaitChange(Long userId, Long since) {
+        return delegate.awaitChange(userId, since);
+    }
+
+    void invalidateUser(Long userId) {
+        generations.advance(userId);
+    }
+
+    private Key key(Long userId, Long recordId) {
+        return new Key(userId, generations.of(userId), recordId);
+    }
+
+    public static final class Key {
+        private final Long userId;
+        private final long generation;
+        private final Long recordId;
+
+        Key(Long userId, long generation, Long recordId) {
+            this.userId = userId;
+            this.generation = generation;
+            this.recordId = recordId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return generation == key.generation && Objects.equals(userId, key.userId)
+                    && Objects.equals(recordId, key.recordId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(userId, generation, recordId);
+        }
+    }
+}
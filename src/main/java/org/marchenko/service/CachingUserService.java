@@ -0,0 +1,108 @@
+package org.marchenko.service;
+
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.User;
+
+import java.util.List;
+
+public class CachingUserService implements UserService {
+    private final UserService delegate;
+
+    private final LruCache<Long, User> cache;
+
+    private final CachingRecordService records;
+
+    public CachingUserService(UserService delegate, LruCache<Long, User> cache, CachingRecordService records) {
+        this.delegate = delegate;
+        this.cache = cache;
+        this.records = records;
+    }
+
+    public LruCache<Long, User> cache() {
+        return cache;
+    }
+
+    @Override
+    public List<User> findAllUsers(Integer pageNumber, Integer pageSize) {
+        return delegate.findAllUsers(pageNumber, pageSize);
+    }
+
+    @Override
+    public User createUser(String name, String phone) {
+        return delegate.createUser(name, phone);
+    }
+
+    @Override
+    public User findUserById(Long id) {
+        return cache.get(id, delegate::findUserById);
+    }
+
+    @Override
+    public User findUserByPhone(String phone) {
+        return delegate.findUserByPhone(phone);
+    }
+
+    @Override
+    public List<User> findUsersByName(String name, Integer pageNumber, Integer pageSize) {
+        return delegate.findUsersByName(name, pageNumber, pageSize);
+    }
+
+    @Override
+    public List<User> findUsersAfter(Long afterId, Integer pageSize) {
+        return delegate.findUsersAfter(afterId, pageSize);
+    }
+
+    @Override
+    public List<User> findUsersByNameAfter(String name, Long afterId, Integer pageSize) {
+        return delegate.findUsersByNameAfter(name, afterId, pageSize);
+    }
+
+    @Override
+    public User deleteUser(Long id) {
+        try {
+            return delegate.deleteUser(id);
+        } finally {
+            invalidateDeleted(id);
+        }
+    }
+
+    @Override
+    public User updateUser(Long id, String name, String phone) {
+        return updateUser(id, name, phone, null);
+    }
+
+    @Override
+    public User updateUser(Long id, String name, String phone, Long expectedVersion) {
+        try {
+            return delegate.updateUser(id, name, phone, expectedVersion);
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    @Override
+    public List<OperationResult<User>> applyOperations(List<Operation> operations) {
+        try {
+            return delegate.applyOperations(operations);
+        } finally {
+            if (operations != null) {
+                for (Operation operation : operations) {
+                    if (operation == null || operation.getId() == null) {
+                        continue;
+                    }
+                    if (operation.getType() == Operation.Type.DELETE) {
+                        invalidateDeleted(operation.getId());
+                    } else {
+                        cache.invalidate(operation.getId());
+                    }
+                }
+            }
+        }
+    }
+
+    private void invalidateDeleted(Long id) {
+        cache.invalidate(id);
+        records.invalidateUser(id);
+    }
+}
@@ -0,0 +1,63 @@
+package org.marchenko.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/** Coalescing decorators, enabled with {@code phonebook.coalescing.enabled}. */
+@Configuration
+@ConditionalOnProperty(name = "phonebook.coalescing.enabled", havingValue = "true")
+public class CoalescingConfiguration {
+
+    @Bean
+    public MeterBinder coalescingMetrics(CoalescingUserService users, CoalescingRecordService records) {
+        return registry -> {
+            bind(registry, "users", users.flights());
+            bind(registry, "records", records.flights());
+        };
+    }
+
+    private static void bind(MeterRegistry registry, String name, SingleFlight<?> flights) {
+        FunctionCounter.builder("phonebook.coalescing.shared", flights, SingleFlight::sharedCount)
+                .tag("service", name)
+                .description("Reads answered by joining an identical read already running")
+                .register(registry);
+    }
+
+    @Configuration
+    @ConditionalOnExpression("${phonebook.coalescing.enabled:false} and !${phonebook.cache.enabled:false}")
+    static class Outermost {
+        @Bean
+        @Primary
+        public CoalescingRecordService coalescingRecordService(RecordServiceImpl recordService) {
+            return new CoalescingRecordService(recordService, new SingleFlight<>());
+        }
+
+        @Bean
+        @Primary
+        public CoalescingUserService coalescingUserService(UserServiceImpl userService,
+                                                           CoalescingRecordService records) {
+            return new CoalescingUserService(userService, new SingleFlight<>(), records);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnExpression("${phonebook.coalescing.enabled:false} and ${phonebook.cache.enabled:false}")
+    static class BehindCache {
+        @Bean
+        public CoalescingRecordService coalescingRecordService(RecordServiceImpl recordService) {
+            return new CoalescingRecordService(recordService, new SingleFlight<>());
+        }
+
+        @Bean
+        public CoalescingUserService coalescingUserService(UserServiceImpl userService,
+                                                           CoalescingRecordService records) {
+            return new CoalescingUserService(userService, new SingleFlight<>(), records);
+        }
+    }
+}
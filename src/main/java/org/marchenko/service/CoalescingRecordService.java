@@ -0,0 +1,122 @@
+package org.marchenko.service;
+
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
+import org.marchenko.model.Record;
+import org.marchenko.model.RecordChanges;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/** List keys carry the records version read first, so a page is never older than it. */
+public class CoalescingRecordService implements RecordService {
+    private final RecordService delegate;
+
+    private final SingleFlight<List<Object>> flights;
+
+    private final Generations generations = new Generations();
+
+    public CoalescingRecordService(RecordService delegate, SingleFlight<List<Object>> flights) {
+        this.delegate = delegate;
+        this.flights = flights;
+    }
+
+    public SingleFlight<List<Object>> flights() {
+        return flights;
+    }
+
+    @Override
+    public List<Record> findAllRecords(Long userId, Integer pageNumber, Integer pageSize) {
+        return flights.run(
+                Arrays.asList(userId, delegate.recordsVersion(userId), "findAllRecords", pageNumber, pageSize),
+                () -> delegate.findAllRecords(userId, pageNumber, pageSize));
+    }
+
+    @Override
+    public List<Record> findRecordsAfter(Long userId, Long afterId, Integer pageSize) {
+        return flights.run(
+                Arrays.asList(userId, delegate.recordsVersion(userId), "findRecordsAfter", afterId, pageSize),
+                () -> delegate.findRecordsAfter(userId, afterId, pageSize));
+    }
+
+    @Override
+    public Record createRecord(Long userId, String name, String phone) {
+        try {
+            return delegate.createRecord(userId, name, phone);
+        } finally {
+            forget(userId);
+        }
+    }
+
+    @Override
+    public Record findRecordById(Long userId, Long recordId) {
+        return flights.run(Arrays.asList(userId, generations.of(userId), "findRecordById", recordId),
+                () -> delegate.findRecordById(userId, recordId));
+    }
+
+    @Override
+    public Record findRecordByPhone(Long userId, String phone) {
+        return flights.run(Arrays.asList(userId, generations.of(userId), "findRecordByPhone", phone),
+                () -> delegate.findRecordByPhone(userId, phone));
+    }
+
+    @Override
+    public List<PhoneHolder> findPhoneHolders(String phone, Long afterRecordId, Integer pageSize) {
+        return flights.run(
+                Arrays.asList(null, generations.ofAll(), "findPhoneHolders", phone, afterRecordId, pageSize),
+                () -> delegate.findPhoneHolders(phone, afterRecordId, pageSize));
+    }
+
+    @Override
+    public Record deleteRecord(Long userId, Long recordId) {
+        try {
+            return delegate.deleteRecord(userId, recordId);
+        } finally {
+            forget(userId);
+        }
+    }
+
+    @Override
+    public Record updateRecord(Long userId, Long recordId, String name, String phone) {
+        return updateRecord(userId, recordId, name, phone, null);
+    }
+
+    @Override
+    public Record updateRecord(Long userId, Long recordId, String name, String phone, Long expectedVersion) {
+        try {
+            return delegate.updateRecord(userId, recordId, name, phone, expectedVersion);
+        } finally {
+            forget(userId);
+        }
+    }
+
+    @Override
+    public long recordsVersion(Long userId) {
+        return delegate.recordsVersion(userId);
+    }
+
+    @Override
+    public List<OperationResult<Record>> applyOperations(Long userId, List<Operation> operations) {
+        try {
+            return delegate.applyOperations(userId, operations);
+        } finally {
+            forget(userId);
+        }
+    }
+
+    @Override
+    public RecordChanges findChanges(Long userId, Long since, Integer limit) {
+        return delegate.findChanges(userId, since, limit);
+    }
+
+    @Override
+    public CompletableFuture<Void> awaitChange(Long userId, Long since) {
+        return delegate.awaitChange(userId, since);
+    }
+
+    void forget(Long userId) {
+        generations.advance(userId);
+    }
+}
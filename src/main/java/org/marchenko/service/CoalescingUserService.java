@@ -0,0 +1,130 @@
+package org.marchenko.service;
+
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.User;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class CoalescingUserService implements UserService {
+    private final UserService delegate;
+
+    private final SingleFlight<List<Object>> flights;
+
+    private final CoalescingRecordService records;
+
+    private final Generations generations = new Generations();
+
+    public CoalescingUserService(UserService delegate, SingleFlight<List<Object>> flights,
+                                 CoalescingRecordService records) {
+        this.delegate = delegate;
+        this.flights = flights;
+        this.records = records;
+    }
+
+    public SingleFlight<List<Object>> flights() {
+        return flights;
+    }
+
+    @Override
+    public List<User> findAllUsers(Integer pageNumber, Integer pageSize) {
+        return flights.run(Arrays.asList("findAllUsers", generations.ofAll(), pageNumber, pageSize),
+                () -> delegate.findAllUsers(pageNumber, pageSize));
+    }
+
+    @Override
+    public User createUser(String name, String phone) {
+        User user = null;
+        try {
+            user = delegate.createUser(name, phone);
+            return user;
+        } finally {
+            if (user != null) {
+                generations.advance(user.getId());
+            } else {
+                generations.advanceAll();
+            }
+        }
+    }
+
+    @Override
+    public User findUserById(Long id) {
+        return flights.run(Arrays.asList("findUserById", id, generations.of(id)), () -> delegate.findUserById(id));
+    }
+
+    @Override
+    public User findUserByPhone(String phone) {
+        return flights.run(Arrays.asList("findUserByPhone", generations.ofAll(), phone), () -> delegate.findUserByPhone(phone));
+    }
+
+    @Override
+    public List<User> findUsersByName(String name, Integer pageNumber, Integer pageSize) {
+        return flights.run(Arrays.asList("findUsersByName", generations.ofAll(), name, pageNumber, pageSize),
+                () -> delegate.findUsersByName(name, pageNumber, pageSize));
+    }
+
+    @Override
+    public List<User> findUsersAfter(Long afterId, Integer pageSize) {
+        return flights.run(Arrays.asList("findUsersAfter", generations.ofAll(), afterId, pageSize),
+                () -> delegate.findUsersAfter(afterId, pageSize));
+    }
+
+    @Override
+    public List<User> findUsersByNameAfter(String name, Long afterId, Integer pageSize) {
+        return flights.run(Arrays.asList("findUsersByNameAfter", generations.ofAll(), name, afterId, pageSize),
+                () -> delegate.findUsersByNameAfter(name, afterId, pageSize));
+    }
+
+    @Override
+    public User deleteUser(Long id) {
+        try {
+            return delegate.deleteUser(id);
+        } finally {
+            generations.advance(id);
+            records.forget(id);
+        }
+    }
+
+    @Override
+    public User updateUser(Long id, String name, String phone) {
+        return updateUser(id, name, phone, null);
+    }
+
+    @Override
+    public User updateUser(Long id, String name, String phone, Long expectedVersion) {
+        try {
+            return delegate.updateUser(id, name, phone, expectedVersion);
+        } finally {
+            generations.advance(id);
+        }
+    }
+
+    @Override
+    public List<OperationResult<User>> applyOperations(List<Operation> operations) {
+        List<OperationResult<User>> results = null;
+        try {
+            results = delegate.applyOperations(operations);
+            return results;
+        } finally {
+            generations.advanceAll();
+            if (operations != null) {
+                for (Operation operation : operations) {
+                    if (operation != null && operation.getId() != null) {
+                        generations.advance(operation.getId());
+                        if (operation.getType() == Operation.Type.DELETE) {
+                            records.forget(operation.getId());
+                        }
+                    }
+                }
+            }
+            if (results != null) {
+                for (OperationResult<User> result : results) {
+                    if (result.getValue() != null) {
+                        generations.advance(result.getValue().getId());
+                    }
+                }
+            }
+        }
+    }
+}
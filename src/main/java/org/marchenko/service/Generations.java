@@ -0,0 +1,36 @@
+package org.marchenko.service;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Counters moved by writes, so keys taken after a write differ from earlier ones. */
+final class Generations {
+    private static final int STRIPES = 1024;
+
+    private final AtomicLongArray users = new AtomicLongArray(STRIPES);
+
+    private final AtomicLong all = new AtomicLong();
+
+    long of(Object userId) {
+        return users.get(stripe(userId));
+    }
+
+    long ofAll() {
+        return all.get();
+    }
+
+    void advance(Object userId) {
+        users.incrementAndGet(stripe(userId));
+        all.incrementAndGet();
+    }
+
+    void advanceAll() {
+        all.incrementAndGet();
+    }
+
+    private static int stripe(Object userId) {
+        int hash = Objects.hashCode(userId);
+        return (hash ^ hash >>> 16) & (STRIPES - 1);
+    }
+}
@@ -0,0 +1,135 @@
+package org.marchenko.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/** Segmented LRU cache, each segment an access-ordered map under its own lock. */
+public class LruCache<K, V> {
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    private final long ttlNanos;
+
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(int maximumSize, long ttlSeconds) {
+        this(maximumSize, ttlSeconds, System::nanoTime);
+    }
+
+    LruCache(int maximumSize, long ttlSeconds, LongSupplier clock) {
+        if (maximumSize < 1 || ttlSeconds < 0) {
+            throw new IllegalArgumentException("Cache size must be positive and ttl not negative");
+        }
+        int capacity = Math.max(1, (maximumSize + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(capacity, evictions);
+        }
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.clock = clock;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Segment segment = segment(key);
+        long stamp;
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry != null) {
+                if (ttlNanos == 0 || clock.getAsLong() - entry.loaded < ttlNanos) {
+                    hits.increment();
+                    return (V) entry.value;
+                }
+                segment.remove(key);
+                evictions.increment();
+            }
+            stamp = segment.invalidations;
+        }
+        misses.increment();
+        V value = loader.apply(key);
+        synchronized (segment) {
+            if (segment.invalidations == stamp) {
+                segment.put(key, new Entry(value, clock.getAsLong()));
+            }
+        }
+        return value;
+    }
+
+    public void invalidate(K key) {
+        Segment segment = segment(key);
+        synchronized (segment) {
+            segment.invalidations++;
+            segment.remove(key);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment segment(Object key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long loaded;
+
+        private Entry(Object value, long loaded) {
+            this.value = value;
+            this.loaded = loaded;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Object, Entry> {
+        private final int capacity;
+
+        private final LongAdder evictions;
+
+        private long invalidations;
+
+        private Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
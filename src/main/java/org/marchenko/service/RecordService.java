@@ -1,20 +1,41 @@
 package org.marchenko.service;
 
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
 import org.marchenko.model.Record;
+import org.marchenko.model.RecordChanges;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface RecordService {
     List<Record> findAllRecords(Long userId, Integer pageNumber, Integer pageSize);
 
+    List<Record> findRecordsAfter(Long userId, Long afterId, Integer pageSize);
+
     Record createRecord(Long userId, String name, String phone);
 
     Record findRecordById(Long userId, Long recordId);
 
     Record findRecordByPhone(Long userId, String phone);
 
+    List<PhoneHolder> findPhoneHolders(String phone, Long afterRecordId, Integer pageSize);
+
     Record deleteRecord(Long userId, Long recordId);
 
     Record updateRecord(Long userId, Long recordId, String name, String phone);
 
+    /** A {@code null} expected version updates unconditionally. */
+    Record updateRecord(Long userId, Long recordId, String name, String phone, Long expectedVersion);
+
+    long recordsVersion(Long userId);
+
+    List<OperationResult<Record>> applyOperations(Long userId, List<Operation> operations);
+
+    /** {@code since} is a sequence returned here or a records version. */
+    RecordChanges findChanges(Long userId, Long since, Integer limit);
+
+    CompletableFuture<Void> awaitChange(Long userId, Long since);
+
 }
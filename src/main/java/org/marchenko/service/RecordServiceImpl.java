@@ -1,38 +1,103 @@
 package org.marchenko.service;
 
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
 import org.marchenko.model.Record;
+import org.marchenko.model.RecordChanges;
+import org.marchenko.storage.PhoneBookStorage;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.marchenko.service.Validation.*;
+
 @Component
 public class RecordServiceImpl implements RecordService {
+    private final PhoneBookStorage storage;
+
+    @Autowired
+    public RecordServiceImpl(PhoneBookStorage storage) {
+        this.storage = storage;
+    }
+
     @Override
     public List<Record> findAllRecords(Long userId, Integer pageNumber, Integer pageSize) {
-        return null;
+        checkPage(pageNumber, pageSize);
+        return storage.findRecords(userId, pageNumber, pageSize);
+    }
+
+    @Override
+    public List<Record> findRecordsAfter(Long userId, Long afterId, Integer pageSize) {
+        checkPageSize(pageSize);
+        return storage.findRecordsAfter(userId, afterId, pageSize);
     }
 
     @Override
     public Record createRecord(Long userId, String name, String phone) {
-        return null;
+        checkNotBlank("name", name);
+        checkPhone(phone);
+        return storage.createRecord(userId, name, phone);
     }
 
     @Override
     public Record findRecordById(Long userId, Long recordId) {
-        return null;
+        return storage.findRecord(userId, recordId);
     }
 
     @Override
     public Record findRecordByPhone(Long userId, String phone) {
-        return null;
+        checkNotBlank("phone", phone);
+        return storage.findRecordByPhone(userId, phone);
+    }
+
+    @Override
+    public List<PhoneHolder> findPhoneHolders(String phone, Long afterRecordId, Integer pageSize) {
+        checkNotBlank("phone", phone);
+        checkPageSize(pageSize);
+        return storage.findPhoneHolders(phone, afterRecordId, pageSize);
     }
 
     @Override
     public Record deleteRecord(Long userId, Long recordId) {
-        return null;
+        return storage.deleteRecord(userId, recordId);
     }
 
     @Override
     public Record updateRecord(Long userId, Long recordId, String name, String phone) {
-        return null;
+        return updateRecord(userId, recordId, name, phone, null);
+    }
+
+    @Override
+    public Record updateRecord(Long userId, Long recordId, String name, String phone, Long expectedVersion) {
+        checkNotBlankIfPresent("name", name);
+        checkPhoneIfPresent(phone);
+        return storage.updateRecord(userId, recordId, name, phone, expectedVersion);
+    }
+
+    @Override
+    public long recordsVersion(Long userId) {
+        return storage.recordsVersion(userId);
+    }
+
+    @Override
+    public List<OperationResult<Record>> applyOperations(Long userId, List<Operation> operations) {
+        checkBatch(operations);
+        return storage.applyRecordOperations(userId, operations, Validation::checkOperation);
+    }
+
+    @Override
+    public RecordChanges findChanges(Long userId, Long since, Integer limit) {
+        checkNotNull("since", since);
+        checkPageSize(limit);
+        return storage.findRecordChanges(userId, since, limit);
+    }
+
+    @Override
+    public CompletableFuture<Void> awaitChange(Long userId, Long since) {
+        checkNotNull("since", since);
+        return storage.awaitRecordChange(userId, since);
     }
 }
@@ -0,0 +1,42 @@
+package org.marchenko.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** Times every service call as {@code phonebook.service}. */
+@Aspect
+@Component
+public class ServiceMetrics {
+    static final String TIMER = "phonebook.service";
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public ServiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * org.marchenko.service.UserService+.*(..))"
+            + " || execution(public * org.marchenko.service.RecordService+.*(..))")
+    public Object time(ProceedingJoinPoint call) throws Throwable {
+        Timer.Sample sample = Timer.start(registry);
+        String exception = "None";
+        try {
+            return call.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(TIMER)
+                    .tag("class", call.getTarget().getClass().getSimpleName())
+                    .tag("method", call.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(registry));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.marchenko.service;
 
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
 import org.marchenko.model.User;
 
 import java.util.List;
@@ -12,9 +14,20 @@ public interface UserService {
 
     User findUserById(Long id);
 
+    User findUserByPhone(String phone);
+
     List<User> findUsersByName(String name, Integer pageNumber, Integer pageSize);
 
+    List<User> findUsersAfter(Long afterId, Integer pageSize);
+
+    List<User> findUsersByNameAfter(String name, Long afterId, Integer pageSize);
+
     User deleteUser(Long id);
 
     User updateUser(Long id, String name, String phone);
+
+    /** A {@code null} expected version updates unconditionally. */
+    User updateUser(Long id, String name, String phone, Long expectedVersion);
+
+    List<OperationResult<User>> applyOperations(List<Operation> operations);
 }
@@ -1,38 +1,114 @@
 package org.marchenko.service;
 
+import org.marchenko.exception.BadRequest;
+import org.marchenko.exception.CreateException;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
 import org.marchenko.model.User;
+import org.marchenko.storage.PhoneBookStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
+
+import static org.marchenko.service.Validation.*;
+
 @Component
 public class UserServiceImpl implements UserService {
+    private final PhoneBookStorage storage;
+
+    @Autowired
+    public UserServiceImpl(PhoneBookStorage storage) {
+        this.storage = storage;
+    }
+
     @Override
     public List<User> findAllUsers(Integer pageNumber, Integer pageSize) {
-        return null;
+        checkPage(pageNumber, pageSize);
+        return storage.findUsers(pageNumber, pageSize);
     }
 
     @Override
     public User createUser(String name, String phone) {
-        return null;
+        checkNotBlank("name", name);
+        checkPhone(phone);
+        return storage.createUser(name, phone);
     }
 
     @Override
     public User findUserById(Long id) {
-        return null;
+        return storage.findUser(id);
+    }
+
+    @Override
+    public User findUserByPhone(String phone) {
+        checkNotBlank("phone", phone);
+        return storage.findUserByPhone(phone);
     }
 
     @Override
     public List<User> findUsersByName(String name, Integer pageNumber, Integer pageSize) {
-        return null;
+        checkNotBlank("name", name);
+        checkPage(pageNumber, pageSize);
+        return storage.findUsersByName(name.trim(), pageNumber, pageSize);
+    }
+
+    @Override
+    public List<User> findUsersAfter(Long afterId, Integer pageSize) {
+        checkPageSize(pageSize);
+        return storage.findUsersAfter(afterId, pageSize);
+    }
+
+    @Override
+    public List<User> findUsersByNameAfter(String name, Long afterId, Integer pageSize) {
+        checkNotBlank("name", name);
+        checkPageSize(pageSize);
+        return storage.findUsersByNameAfter(name.trim(), afterId, pageSize);
     }
 
     @Override
     public User deleteUser(Long id) {
-        return null;
+        return storage.deleteUser(id);
     }
 
     @Override
     public User updateUser(Long id, String name, String phone) {
-        return null;
+        return updateUser(id, name, phone, null);
+    }
+
+    @Override
+    public User updateUser(Long id, String name, String phone, Long expectedVersion) {
+        checkNotBlankIfPresent("name", name);
+        checkPhoneIfPresent(phone);
+        return storage.updateUser(id, name, phone, expectedVersion);
+    }
+
+    @Override
+    public List<OperationResult<User>> applyOperations(List<Operation> operations) {
+        checkBatch(operations);
+        List<OperationResult<User>> results = new ArrayList<>(operations.size());
+        for (Operation operation : operations) {
+            try {
+                checkOperation(operation);
+                switch (operation.getType()) {
+                    case CREATE:
+                        results.add(OperationResult.ok(HttpStatus.CREATED,
+                                storage.createUser(operation.getName(), operation.getPhone())));
+                        break;
+                    case UPDATE:
+                        results.add(OperationResult.ok(HttpStatus.OK,
+                                storage.updateUser(operation.getId(), operation.getName(), operation.getPhone())));
+                        break;
+                    default:
+                        results.add(OperationResult.ok(HttpStatus.OK, storage.deleteUser(operation.getId())));
+                }
+            } catch (CreateException | NotFoundException | BadRequest e) {
+                results.add(OperationResult.failed(e));
+            }
+        }
+        return results;
     }
 }
@@ -0,0 +1,84 @@
+package org.marchenko.service;
+
+import org.marchenko.exception.BadRequest;
+import org.marchenko.model.Operation;
+import org.marchenko.model.PhoneNumber;
+
+import java.util.List;
+
+final class Validation {
+    static final int MAX_BATCH_SIZE = 10_000;
+    private Validation() {
+    }
+
+    static void checkNotBlank(String field, String value) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new BadRequest(field + " must not be empty");
+        }
+    }
+
+    static void checkPhone(String phone) {
+        checkNotBlank("phone", phone);
+        if (!PhoneNumber.isNumber(PhoneNumber.key(phone))) {
+            throw new BadRequest("phone must be a number of 1 to " + PhoneNumber.MAX_DIGITS + " digits");
+        }
+    }
+
+    static void checkPhoneIfPresent(String phone) {
+        if (phone != null) {
+            checkPhone(phone);
+        }
+    }
+
+    static void checkNotNull(String field, Object value) {
+        if (value == null) {
+            throw new BadRequest(field + " must be set");
+        }
+    }
+
+    static void checkNotBlankIfPresent(String field, String value) {
+        if (value != null) {
+            checkNotBlank(field, value);
+        }
+    }
+
+    static void checkBatch(List<Operation> operations) {
+        if (operations == null) {
+            throw new BadRequest("operations must be set");
+        }
+        if (operations.size() > MAX_BATCH_SIZE) {
+            throw new BadRequest("at most " + MAX_BATCH_SIZE + " operations are allowed in one batch");
+        }
+    }
+
+    static void checkOperation(Operation operation) {
+        if (operation == null || operation.getType() == null) {
+            throw new BadRequest("type must be set");
+        }
+        if (operation.getType() == Operation.Type.CREATE) {
+            checkNotBlank("name", operation.getName());
+            checkPhone(operation.getPhone());
+            return;
+        }
+        if (operation.getId() == null) {
+            throw new BadRequest("id must be set");
+        }
+        if (operation.getType() == Operation.Type.UPDATE) {
+            checkNotBlankIfPresent("name", operation.getName());
+            checkPhoneIfPresent(operation.getPhone());
+        }
+    }
+
+    static void checkPageSize(Integer pageSize) {
+        if (pageSize == null || pageSize <= 0) {
+            throw new BadRequest("pageSize must be positive");
+        }
+    }
+
+    static void checkPage(Integer pageNumber, Integer pageSize) {
+        if (pageNumber == null || pageNumber < 0) {
+            throw new BadRequest("pageNumber must not be negative");
+        }
+        checkPageSize(pageSize);
+    }
+}
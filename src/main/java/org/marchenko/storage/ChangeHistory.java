@@ -0,0 +1,81 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.RecordChange;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The latest {@code capacity} changes of one phone book. */
+final class ChangeHistory {
+    private final int capacity;
+
+    private ArrayDeque<RecordChange> changes;
+
+    private long floor;
+
+    private final Set<CompletableFuture<Void>> waiters = ConcurrentHashMap.newKeySet();
+
+    ChangeHistory(int capacity) {
+        this.capacity = capacity;
+    }
+
+    void add(RecordChange change) {
+        if (capacity == 0) {
+            floor = change.getSequence();
+            return;
+        }
+        if (changes == null) {
+            changes = new ArrayDeque<>(Math.min(capacity, 16));
+        }
+        if (changes.size() == capacity) {
+            floor = changes.removeFirst().getSequence();
+        }
+        changes.addLast(change);
+    }
+
+    void reset(long sequence) {
+        changes = null;
+        floor = sequence;
+    }
+
+    /** Returns {@code null} when changes after {@code since} were already dropped. */
+    List<RecordChange> since(long since, int limit) {
+        if (since < floor) {
+            return null;
+        }
+        if (changes == null) {
+            return Collections.emptyList();
+        }
+        int newer = 0;
+        for (Iterator<RecordChange> iterator = changes.descendingIterator();
+             iterator.hasNext() && iterator.next().getSequence() > since; ) {
+            newer++;
+        }
+        List<RecordChange> result = new ArrayList<>(Math.min(newer, limit));
+        Iterator<RecordChange> iterator = changes.iterator();
+        for (int skip = changes.size() - newer; skip > 0; skip--) {
+            iterator.next();
+        }
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    void await(CompletableFuture<Void> waiter) {
+        waiters.add(waiter);
+        waiter.whenComplete((ignored, failure) -> waiters.remove(waiter));
+    }
+
+    void wake() {
+        for (CompletableFuture<Void> waiter : waiters) {
+            waiter.complete(null);
+        }
+    }
+}
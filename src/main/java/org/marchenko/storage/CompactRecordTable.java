@@ -0,0 +1,245 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.PhoneNumber;
+import org.marchenko.model.Record;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Records in arrays sorted by id, name and phone packed as {@code [name length][name][phone]}. */
+final class CompactRecordTable implements RecordTable {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private static final long[] NO_LONGS = new long[0];
+
+    private static final byte[][] NO_DATA = new byte[0][];
+
+    private long[] ids = NO_LONGS;
+
+    private long[] versions = NO_LONGS;
+
+    private byte[][] data = NO_DATA;
+
+    private int size;
+
+    private long[] phoneSlots = NO_LONGS;
+
+    private long[] phoneKeys = NO_LONGS;
+
+    @Override
+    public Record get(long id) {
+        int position = position(id);
+        return position < 0 ? null : materialize(position);
+    }
+
+    @Override
+    public long idByPhone(long phoneKey) {
+        int slot = findPhone(phoneKey);
+        return slot < 0 ? NONE : phoneSlots[slot];
+    }
+
+    @Override
+    public Record put(Record record) {
+        long id = record.getId();
+        byte[] packed = pack(record.getName(), record.getPhone());
+        int position = position(id);
+        Record previous = null;
+        if (position >= 0) {
+            previous = materialize(position);
+            if (previous.getPhoneKey() != record.getPhoneKey()) {
+                unindexPhone(id, previous.getPhoneKey());
+            }
+            data[position] = packed;
+            versions[position] = record.getVersion();
+        } else {
+            position = -(position + 1);
+            ensureCapacity(size + 1);
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(versions, position, versions, position + 1, size - position);
+            System.arraycopy(data, position, data, position + 1, size - position);
+            ids[position] = id;
+            versions[position] = record.getVersion();
+            data[position] = packed;
+            size++;
+        }
+        indexPhone(id, record.getPhoneKey());
+        return previous;
+    }
+
+    @Override
+    public Record remove(long id) {
+        int position = position(id);
+        if (position < 0) {
+            return null;
+        }
+        Record previous = materialize(position);
+        unindexPhone(id, previous.getPhoneKey());
+        System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+        System.arraycopy(versions, position + 1, versions, position, size - position - 1);
+        System.arraycopy(data, position + 1, data, position, size - position - 1);
+        size--;
+        data[size] = null;
+        return previous;
+    }
+
+    @Override
+    public List<Record> page(long offset, int limit) {
+        return materialize(offset >= size ? size : (int) offset, limit);
+    }
+
+    @Override
+    public List<Record> pageAfter(long afterId, int limit) {
+        int position = position(afterId);
+        return materialize(position >= 0 ? position + 1 : -(position + 1), limit);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int truncate(int count, Removed removed) {
+        int truncated = Math.min(count, size);
+        for (int i = 0; i < truncated; i++) {
+            int last = size - 1;
+            long key = phoneKey(data[last]);
+            unindexPhone(ids[last], key);
+            removed.removed(ids[last], key);
+            data[last] = null;
+            size = last;
+        }
+        return truncated;
+    }
+
+    private int position(long id) {
+        return Arrays.binarySearch(ids, 0, size, id);
+    }
+
+    private List<Record> materialize(int from, int limit) {
+        int to = (int) Math.min(size, (long) from + limit);
+        List<Record> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            page.add(materialize(i));
+        }
+        return page;
+    }
+
+    private Record materialize(int position) {
+        byte[] packed = data[position];
+        int nameLength = nameLength(packed);
+        return new Record(ids[position],
+                new String(packed, Integer.BYTES, nameLength, StandardCharsets.UTF_8),
+                new String(packed, Integer.BYTES + nameLength, packed.length - Integer.BYTES - nameLength,
+                        StandardCharsets.UTF_8),
+                versions[position]);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(INITIAL_CAPACITY, ids.length + (ids.length >> 1));
+            ids = Arrays.copyOf(ids, grown);
+            versions = Arrays.copyOf(versions, grown);
+            data = Arrays.copyOf(data, grown);
+        }
+    }
+
+    private void indexPhone(long id, long key) {
+        if (phoneSlots.length == 0 || size * 2 > phoneSlots.length) {
+            rehash(Math.max(8, Integer.highestOneBit(Math.max(1, size)) << 2));
+        }
+        int mask = phoneSlots.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            long current = phoneSlots[slot];
+            if (current == NONE || current == id || phoneKeys[slot] == key) {
+                phoneSlots[slot] = id;
+                phoneKeys[slot] = key;
+                return;
+            }
+        }
+    }
+
+    /** Shifts the rest of the probe run back so lookups never stop at the hole. */
+    private void unindexPhone(long id, long key) {
+        int gap = findPhone(key);
+        if (gap < 0 || phoneSlots[gap] != id) {
+            return;
+        }
+        int mask = phoneSlots.length - 1;
+        for (int slot = (gap + 1) & mask; phoneSlots[slot] != NONE; slot = (slot + 1) & mask) {
+            int home = hash(phoneKeys[slot]) & mask;
+            boolean homeBetween = gap <= slot ? gap < home && home <= slot : gap < home || home <= slot;
+            if (!homeBetween) {
+                phoneSlots[gap] = phoneSlots[slot];
+                phoneKeys[gap] = phoneKeys[slot];
+                gap = slot;
+            }
+        }
+        phoneSlots[gap] = NONE;
+        phoneKeys[gap] = 0;
+    }
+
+    private int findPhone(long key) {
+        if (phoneSlots.length == 0) {
+            return -1;
+        }
+        int mask = phoneSlots.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (phoneSlots[slot] == NONE) {
+                return -1;
+            }
+            if (phoneKeys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldIds = phoneSlots;
+        long[] oldKeys = phoneKeys;
+        phoneSlots = new long[capacity];
+        phoneKeys = new long[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldIds[i] != NONE) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (phoneSlots[slot] != NONE) {
+                    slot = (slot + 1) & mask;
+                }
+                phoneSlots[slot] = oldIds[i];
+                phoneKeys[slot] = oldKeys[i];
+            }
+        }
+    }
+
+    private static long phoneKey(byte[] packed) {
+        int offset = phoneOffset(packed);
+        return PhoneNumber.key(new String(packed, offset, packed.length - offset, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] pack(String name, String phone) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] phoneBytes = phone.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(Integer.BYTES + nameBytes.length + phoneBytes.length)
+                .putInt(nameBytes.length)
+                .put(nameBytes)
+                .put(phoneBytes)
+                .array();
+    }
+
+    private static int nameLength(byte[] packed) {
+        return (packed[0] & 0xff) << 24 | (packed[1] & 0xff) << 16 | (packed[2] & 0xff) << 8 | packed[3] & 0xff;
+    }
+
+    private static int phoneOffset(byte[] packed) {
+        return Integer.BYTES + nameLength(packed);
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32);
+    }
+}
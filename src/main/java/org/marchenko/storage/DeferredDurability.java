@@ -0,0 +1,55 @@
+package org.marchenko.storage;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/** Lets a thread collect its durable waits instead of blocking on each write. */
+public final class DeferredDurability {
+    private static final ThreadLocal<DeferredDurability> CURRENT = new ThreadLocal<>();
+
+    private final Map<WriteAheadLog, Long> lsns = new IdentityHashMap<>(4);
+
+    private DeferredDurability() {
+    }
+
+    public static DeferredDurability begin() {
+        DeferredDurability deferred = new DeferredDurability();
+        CURRENT.set(deferred);
+        return deferred;
+    }
+
+    public void end() {
+        CURRENT.remove();
+    }
+
+    public boolean isEmpty() {
+        return lsns.isEmpty();
+    }
+
+    public CompletableFuture<Void> whenDurable() {
+        if (lsns.size() == 1) {
+            Map.Entry<WriteAheadLog, Long> only = lsns.entrySet().iterator().next();
+            return only.getKey().whenDurable(only.getValue());
+        }
+        return CompletableFuture.allOf(lsns.entrySet().stream()
+                .map(entry -> entry.getKey().whenDurable(entry.getValue()))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    /** Must be called after {@link #end()}. */
+    public void awaitDurable() {
+        for (Map.Entry<WriteAheadLog, Long> entry : lsns.entrySet()) {
+            entry.getKey().awaitDurable(entry.getValue());
+        }
+    }
+
+    static boolean defer(WriteAheadLog log, long lsn) {
+        DeferredDurability deferred = CURRENT.get();
+        if (deferred == null) {
+            return false;
+        }
+        deferred.lsns.merge(log, lsn, Math::max);
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package org.marchenko.storage;
+
+interface MutationHandler {
+    void putUser(long id, String name, String phone);
+
+    void deleteUser(long id);
+
+    void putRecord(long userId, long id, String name, String phone);
+
+    void deleteRecord(long userId, long id);
+}
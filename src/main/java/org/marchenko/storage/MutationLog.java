@@ -0,0 +1,51 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.Record;
+import org.marchenko.model.User;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface MutationLog {
+    MutationLog NONE = new MutationLog() {
+        @Override
+        public long putUser(User user) {
+            return 0;
+        }
+
+        @Override
+        public long deleteUser(long id) {
+            return 0;
+        }
+
+        @Override
+        public long putRecord(long userId, Record record) {
+            return 0;
+        }
+
+        @Override
+        public long deleteRecord(long userId, long recordId) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long lsn) {
+        }
+
+        @Override
+        public CompletableFuture<Void> whenDurable(long lsn) {
+            return CompletableFuture.completedFuture(null);
+        }
+    };
+
+    long putUser(User user);
+
+    long deleteUser(long id);
+
+    long putRecord(long userId, Record record);
+
+    long deleteRecord(long userId, long recordId);
+
+    void awaitDurable(long lsn);
+
+    CompletableFuture<Void> whenDurable(long lsn);
+}
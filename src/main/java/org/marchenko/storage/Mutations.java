@@ -0,0 +1,83 @@
+package org.marchenko.storage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** Change encoding shared by the write-ahead log and snapshots. */
+final class Mutations {
+    static final byte END = 0;
+    static final byte PUT_USER = 1;
+    static final byte DELETE_USER = 2;
+    static final byte PUT_RECORD = 3;
+    static final byte DELETE_RECORD = 4;
+
+    private Mutations() {
+    }
+
+    static void putUser(DataOutput out, long id, String name, String phone) throws IOException {
+        out.writeByte(PUT_USER);
+        out.writeLong(id);
+        writeString(out, name);
+        writeString(out, phone);
+    }
+
+    static void deleteUser(DataOutput out, long id) throws IOException {
+        out.writeByte(DELETE_USER);
+        out.writeLong(id);
+    }
+
+    static void putRecord(DataOutput out, long userId, long id, String name, String phone) throws IOException {
+        out.writeByte(PUT_RECORD);
+        out.writeLong(userId);
+        out.writeLong(id);
+        writeString(out, name);
+        writeString(out, phone);
+    }
+
+    static void deleteRecord(DataOutput out, long userId, long id) throws IOException {
+        out.writeByte(DELETE_RECORD);
+        out.writeLong(userId);
+        out.writeLong(id);
+    }
+
+    /** Returns {@code false} at the end marker. */
+    static boolean read(DataInput in, MutationHandler handler) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case END:
+                return false;
+            case PUT_USER:
+                handler.putUser(in.readLong(), readString(in), readString(in));
+                return true;
+            case DELETE_USER:
+                handler.deleteUser(in.readLong());
+                return true;
+            case PUT_RECORD:
+                handler.putRecord(in.readLong(), in.readLong(), readString(in), readString(in));
+                return true;
+            case DELETE_RECORD:
+                handler.deleteRecord(in.readLong(), in.readLong());
+                return true;
+            default:
+                throw new IOException("Unknown mutation type " + type);
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Negative string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
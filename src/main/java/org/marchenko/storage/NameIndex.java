@@ -0,0 +1,120 @@
+package org.marchenko.storage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/** Substring index over folded names, candidates must be verified with {@link #matches}. */
+class NameIndex {
+    static final int MAX_GRAM = 3;
+
+    private static final int STRIPES = 64;
+
+    private final ConcurrentMap<String, Posting> postings = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> indexedNames = new ConcurrentHashMap<>();
+
+    private final Object[] stripes = new Object[STRIPES];
+
+    private final LongFunction<String> currentName;
+
+    NameIndex(LongFunction<String> currentName) {
+        this.currentName = currentName;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    void reindex(long id) {
+        synchronized (stripes[(int) (id & (STRIPES - 1))]) {
+            String name = currentName.apply(id);
+            String folded = name == null ? null : fold(name);
+            String previous = folded == null ? indexedNames.remove(id) : indexedNames.put(id, folded);
+            if (folded != null && folded.equals(previous)) {
+                return;
+            }
+            Set<String> stale = grams(previous);
+            Set<String> fresh = grams(folded);
+            for (String gram : fresh) {
+                if (!stale.remove(gram)) {
+                    postings.compute(gram, (key, posting) -> {
+                        Posting result = posting == null ? new Posting() : posting;
+                        if (result.ids.add(id)) {
+                            result.size.incrementAndGet();
+                        }
+                        return result;
+                    });
+                }
+            }
+            for (String gram : stale) {
+                postings.computeIfPresent(gram, (key, posting) -> {
+                    if (posting.ids.remove(id) && posting.size.decrementAndGet() == 0) {
+                        return null;
+                    }
+                    return posting;
+                });
+            }
+        }
+    }
+
+    NavigableSet<Long> candidates(String foldedQuery) {
+        if (foldedQuery.length() <= MAX_GRAM) {
+            return ids(postings.get(foldedQuery));
+        }
+        Posting smallest = null;
+        for (int i = 0; i + MAX_GRAM <= foldedQuery.length(); i++) {
+            Posting posting = postings.get(foldedQuery.substring(i, i + MAX_GRAM));
+            if (posting == null) {
+                return Collections.emptyNavigableSet();
+            }
+            if (smallest == null || posting.size.get() < smallest.size.get()) {
+                smallest = posting;
+            }
+        }
+        return ids(smallest);
+    }
+
+    int size() {
+        return postings.size();
+    }
+
+    static String fold(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    static boolean matches(String name, String foldedQuery) {
+        return fold(name).contains(foldedQuery);
+    }
+
+    private static NavigableSet<Long> ids(Posting posting) {
+        return posting == null ? Collections.emptyNavigableSet() : posting.ids;
+    }
+
+    private static Set<String> grams(String folded) {
+        Set<String> grams = new HashSet<>();
+        if (folded == null) {
+            return grams;
+        }
+        for (int start = 0; start < folded.length(); start++) {
+            for (int end = start + 1; end <= Math.min(folded.length(), start + MAX_GRAM); end++) {
+                grams.add(folded.substring(start, end));
+            }
+        }
+        return grams;
+    }
+
+    /** {@link ConcurrentSkipListSet#size()} walks the whole set, so the count is kept aside. */
+    private static final class Posting {
+        final NavigableSet<Long> ids = new ConcurrentSkipListSet<>();
+
+        final AtomicInteger size = new AtomicInteger();
+    }
+}
@@ -0,0 +1,135 @@
+package org.marchenko.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Restores the storage from the newest snapshot and log, then takes snapshots periodically. */
+@Component
+@ConditionalOnProperty(name = "phonebook.persistence.enabled", havingValue = "true")
+public class Persistence {
+    private static final Logger log = LoggerFactory.getLogger(Persistence.class);
+
+    private final PhoneBookStorage storage;
+
+    private final ShardLogs<WriteAheadLog> writeAheadLogs;
+
+    private final long snapshotIntervalSeconds;
+
+    private final boolean lazyLoad;
+
+    private final SnapshotFile.Loaded[] loaded;
+
+    private final long[] snapshotLsns;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public Persistence(PhoneBookStorage storage,
+                       ShardLogs<WriteAheadLog> writeAheadLogs,
+                       @Value("${phonebook.persistence.snapshot-interval-seconds:300}") long snapshotIntervalSeconds,
+                       @Value("${phonebook.persistence.lazy-load:true}") boolean lazyLoad) {
+        if (storage.shardCount() != writeAheadLogs.size()) {
+            throw new IllegalArgumentException("Storage has " + storage.shardCount() + " shards but "
+                    + writeAheadLogs.size() + " logs were given");
+        }
+        this.storage = storage;
+        this.writeAheadLogs = writeAheadLogs;
+        this.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        this.lazyLoad = lazyLoad;
+        this.loaded = new SnapshotFile.Loaded[writeAheadLogs.size()];
+        this.snapshotLsns = new long[writeAheadLogs.size()];
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        long started = System.nanoTime();
+        long changes = 0;
+        for (int shard = 0; shard < writeAheadLogs.size(); shard++) {
+            WriteAheadLog writeAheadLog = writeAheadLogs.get(shard);
+            Path directory = writeAheadLog.directory();
+            Files.createDirectories(directory);
+            loaded[shard] = SnapshotFile.openLatest(directory, storage.restorer());
+            if (loaded[shard] != null) {
+                snapshotLsns[shard] = loaded[shard].header.lsn;
+                storage.advanceIdCounters(loaded[shard].header.userIds, loaded[shard].header.recordIds);
+            }
+            long lastLsn = writeAheadLog.replay(snapshotLsns[shard], storage.restorer());
+            writeAheadLog.open(lastLsn);
+            changes += lastLsn;
+        }
+        storage.indexPhones();
+        if (!lazyLoad) {
+            storage.loadAll();
+        }
+        log.info("Recovered {} users in {} shards, {} changes logged, in {} ms", storage.userCount(),
+                writeAheadLogs.size(), changes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::scheduledSnapshot,
+                snapshotIntervalSeconds, snapshotIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("Final snapshot failed, the log still holds every change", e);
+        }
+        for (int shard = 0; shard < writeAheadLogs.size(); shard++) {
+            writeAheadLogs.get(shard).close();
+            if (loaded[shard] != null) {
+                try {
+                    loaded[shard].close();
+                } catch (IOException e) {
+                    log.warn("Failed to close snapshot", e);
+                }
+            }
+        }
+    }
+
+    public synchronized boolean snapshot() throws IOException {
+        boolean written = false;
+        for (int shard = 0; shard < writeAheadLogs.size(); shard++) {
+            WriteAheadLog writeAheadLog = writeAheadLogs.get(shard);
+            if (writeAheadLog.lastLsn() == snapshotLsns[shard]) {
+                continue;
+            }
+            long lsn = writeAheadLog.rotate();
+            SnapshotFile.Header header = new SnapshotFile.Header(lsn, storage.userIdCounter(), storage.recordIdCounter());
+            int dumped = shard;
+            Path snapshot = SnapshotFile.write(writeAheadLog.directory(), header, out -> storage.dump(dumped, out));
+            writeAheadLog.deleteSegmentsUpTo(lsn);
+            SnapshotFile.deleteOlderThan(writeAheadLog.directory(), snapshot);
+            snapshotLsns[shard] = lsn;
+            written = true;
+        }
+        return written;
+    }
+
+    private void scheduledSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Snapshot failed, the log still holds every change", e);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.marchenko.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class PersistenceConfiguration {
+    private static final String SHARD_PREFIX = "shard-";
+
+    @Bean
+    @ConditionalOnProperty(name = "phonebook.persistence.enabled", havingValue = "true")
+    public ShardLogs<WriteAheadLog> writeAheadLogs(@Value("${phonebook.persistence.directory:data}") String directory,
+                                                   @Value("${phonebook.persistence.sync:true}") boolean sync,
+                                                   @Value("${phonebook.storage.shards:1}") int shards) {
+        Path root = Paths.get(directory);
+        checkShardLayout(root, shards);
+        List<WriteAheadLog> logs = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            logs.add(new WriteAheadLog(shards == 1 ? root : root.resolve(SHARD_PREFIX + i), sync));
+        }
+        return new ShardLogs<>(logs);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "phonebook.persistence.enabled", havingValue = "false", matchIfMissing = true)
+    public ShardLogs<MutationLog> mutationLogs(@Value("${phonebook.storage.shards:1}") int shards) {
+        return ShardLogs.none(shards);
+    }
+
+    private static void checkShardLayout(Path root, int shards) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                boolean shardDirectory = name.startsWith(SHARD_PREFIX) && Files.isDirectory(entry);
+                boolean unsharded = name.startsWith("wal-") || name.startsWith("snapshot-");
+                if (shardDirectory && (shards == 1 || shardIndex(name) >= shards) || unsharded && shards > 1) {
+                    throw new IllegalStateException(root + " holds data of a different phonebook.storage.shards than "
+                            + shards + ", found " + name);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int shardIndex(String name) {
+        try {
+            return Integer.parseInt(name.substring(SHARD_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package org.marchenko.storage;
+
+import org.marchenko.exception.BadRequest;
+import org.marchenko.exception.CreateException;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.exception.PreconditionFailed;
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.Record;
+import org.marchenko.model.RecordChange;
+import org.springframework.http.HttpStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/** Records of a single user guarded by that user's own read-write lock. */
+class PhoneBook {
+    private final long userId;
+
+    private final MutationLog log;
+
+    private final LongSupplier versions;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final RecordTable records;
+
+    private final ChangeHistory changes;
+
+    private final PhoneDirectory directory;
+
+    private volatile boolean closed;
+
+    private long lastLsn;
+
+    private volatile long version;
+
+    private volatile RecordBlock unloaded;
+
+    private RecordBlock unreclaimed;
+
+    private int reclaimedKeys;
+
+    PhoneBook(long userId, MutationLog log, LongSupplier versions, RecordTable records, int retainedChanges,
+              PhoneDirectory directory) {
+        this(userId, log, versions, records, retainedChanges, directory, null);
+    }
+
+    PhoneBook(long userId, MutationLog log, LongSupplier versions, RecordTable records, int retainedChanges,
+              PhoneDirectory directory, RecordBlock unloaded) {
+        this.userId = userId;
+        this.log = log;
+        this.versions = versions;
+        this.records = records;
+        this.changes = new ChangeHistory(retainedChanges);
+        this.directory = directory;
+        this.unloaded = unloaded;
+        this.version = versions.getAsLong();
+        changes.reset(version);
+        if (unloaded != null) {
+            unloaded.forEachKey(0, unloaded.count(), (id, phoneKey) -> directory.add(phoneKey, id, userId));
+        }
+    }
+
+    long version() {
+        return version;
+    }
+
+    /** Does not load a book still waiting on its snapshot block. */
+    int size() {
+        RecordBlock block = unloaded;
+        if (block != null) {
+            return block.count();
+        }
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return records.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    Record create(long recordId, String name, String phone) {
+        load();
+        Record record;
+        long lsn;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            checkOpen();
+            record = doCreate(recordId, name, phone);
+            lsn = lastLsn;
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        return record;
+    }
+
+    Record find(Long recordId) {
+        load();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            checkOpen();
+            return existing(recordId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    Record findByPhone(long phoneKey, String phone) {
+        load();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            checkOpen();
+            long recordId = records.idByPhone(phoneKey);
+            if (recordId == RecordTable.NONE) {
+                throw new NotFoundException("Record with phone " + phone + " not found for user " + userId);
+            }
+            return records.get(recordId);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    List<Record> page(int pageNumber, int pageSize) {
+        load();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            checkOpen();
+            return records.page((long) pageNumber * pageSize, pageSize);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    List<Record> pageAfter(long afterId, int pageSize) {
+        load();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            checkOpen();
+            return records.pageAfter(afterId, pageSize);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    List<RecordChange> changesSince(long since, int limit) {
+        load();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            checkOpen();
+            return changes.since(since, limit);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    CompletableFuture<Void> awaitChange(long since) {
+        CompletableFuture<Void> changed = new CompletableFuture<>();
+        changes.await(changed);
+        if (version > since || closed) {
+            changed.complete(null);
+        }
+        return changed;
+    }
+
+    Record update(Long recordId, String name, String phone, Long expectedVersion) {
+        load();
+        Record record;
+        long lsn;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            checkOpen();
+            record = doUpdate(recordId, name, phone, expectedVersion);
+            lsn = lastLsn;
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        return record;
+    }
+
+    Record delete(Long recordId) {
+        load();
+        Record record;
+        long lsn;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            checkOpen();
+            record = doDelete(recordId);
+            lsn = lastLsn;
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        return record;
+    }
+
+    List<OperationResult<Record>> apply(List<Operation> operations, Consumer<Operation> validator, LongSupplier recordIds) {
+        load();
+        List<OperationResult<Record>> results = new ArrayList<>(operations.size());
+        long lsn;
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            checkOpen();
+            for (Operation operation : operations) {
+                try {
+                    validator.accept(operation);
+                    switch (operation.getType()) {
+                        case CREATE:
+                            results.add(OperationResult.ok(HttpStatus.CREATED,
+                                    doCreate(recordIds.getAsLong(), operation.getName(), operation.getPhone())));
+                            break;
+                        case UPDATE:
+                            results.add(OperationResult.ok(HttpStatus.OK,
+                                    doUpdate(operation.getId(), operation.getName(), operation.getPhone(), null)));
+                            break;
+                        default:
+                            results.add(OperationResult.ok(HttpStatus.OK, doDelete(operation.getId())));
+                    }
+                } catch (CreateException | NotFoundException | BadRequest e) {
+                    results.add(OperationResult.failed(e));
+                }
+            }
+            lsn = lastLsn;
+        } finally {
+            writeLock.unlock();
+        }
+        log.awaitDurable(lsn);
+        return results;
+    }
+
+    /** Does not hold the lock across chunks. */
+    void dump(MutationHandler out) {
+        RecordBlock block = unloaded;
+        if (block != null) {
+            block.forEach((id, name, phone) -> out.putRecord(userId, id, name, phone));
+            return;
+        }
+        long cursor = Long.MIN_VALUE;
+        List<Record> chunk;
+        do {
+            try {
+                chunk = pageAfter(cursor, 1024);
+            } catch (NotFoundException e) {
+                return;
+            }
+            for (Record record : chunk) {
+                out.putRecord(userId, record.getId(), record.getName(), record.getPhone());
+                cursor = record.getId();
+            }
+        } while (!chunk.isEmpty());
+    }
+
+    void restore(Record record) {
+        load();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Record previous = records.put(record);
+            if (previous != null && previous.getPhoneKey() != record.getPhoneKey()) {
+                directory.remove(previous.getPhoneKey(), previous.getId());
+            }
+            directory.add(record.getPhoneKey(), record.getId(), userId);
+            version = versions.getAsLong();
+            changes.reset(version);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void restoreDeleted(long recordId) {
+        load();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Record removed = records.remove(recordId);
+            if (removed != null) {
+                directory.remove(removed.getPhoneKey(), recordId);
+                version = versions.getAsLong();
+                changes.reset(version);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /** Writers still holding the book fail instead of resurrecting records. */
+    void close() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            closed = true;
+            unreclaimed = unloaded;
+            unloaded = null;
+            changes.wake();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int reclaim(int count) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            RecordBlock block = unreclaimed;
+            if (block != null) {
+                int from = reclaimedKeys;
+                int to = (int) Math.min((long) from + count, block.count());
+                block.forEachKey(from, to, (id, phoneKey) -> directory.remove(phoneKey, id));
+                reclaimedKeys = to;
+                if (to == block.count()) {
+                    unreclaimed = null;
+                }
+                return to - from;
+            }
+            return records.truncate(count, (id, phoneKey) -> directory.remove(phoneKey, id));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void load() {
+        if (unloaded == null) {
+            return;
+        }
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            RecordBlock block = unloaded;
+            if (block != null) {
+                long loaded = versions.getAsLong();
+                block.forEach((id, name, phone) -> records.put(new Record(id, name, phone, loaded)));
+                unloaded = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Record doCreate(long recordId, String name, String phone) {
+        Record record = new Record(recordId, name, phone, versions.getAsLong());
+        checkPhoneFree(record);
+        records.put(record);
+        directory.add(record.getPhoneKey(), recordId, userId);
+        version = record.getVersion();
+        lastLsn = log.putRecord(userId, record);
+        changed(new RecordChange(version, Operation.Type.CREATE, recordId, record));
+        return record;
+    }
+
+    private Record doUpdate(Long recordId, String name, String phone, Long expectedVersion) {
+        Record current = existing(recordId);
+        if (expectedVersion != null && current.getVersion() != expectedVersion) {
+            throw new PreconditionFailed("Record " + recordId + " is at version " + current.getVersion());
+        }
+        Record updated = new Record(recordId,
+                name == null ? current.getName() : name,
+                phone == null ? current.getPhone() : phone,
+                versions.getAsLong());
+        if (updated.getPhoneKey() != current.getPhoneKey()) {
+            checkPhoneFree(updated);
+            directory.remove(current.getPhoneKey(), recordId);
+            directory.add(updated.getPhoneKey(), recordId, userId);
+        }
+        records.put(updated);
+        version = updated.getVersion();
+        lastLsn = log.putRecord(userId, updated);
+        changed(new RecordChange(version, Operation.Type.UPDATE, recordId, updated));
+        return updated;
+    }
+
+    private Record doDelete(Long recordId) {
+        Record record = records.remove(recordId);
+        if (record == null) {
+            throw recordNotFound(recordId);
+        }
+        directory.remove(record.getPhoneKey(), recordId);
+        version = versions.getAsLong();
+        lastLsn = log.deleteRecord(userId, recordId);
+        changed(new RecordChange(version, Operation.Type.DELETE, recordId, null));
+        return record;
+    }
+
+    private void changed(RecordChange change) {
+        changes.add(change);
+        changes.wake();
+    }
+
+    private Record existing(Long recordId) {
+        Record record = records.get(recordId);
+        if (record == null) {
+            throw recordNotFound(recordId);
+        }
+        return record;
+    }
+
+    private void checkPhoneFree(Record record) {
+        if (records.idByPhone(record.getPhoneKey()) != RecordTable.NONE) {
+            throw new CreateException("Record with phone " + record.getPhone() + " already exists for user " + userId);
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new NotFoundException("User " + userId + " not found");
+        }
+    }
+
+    private NotFoundException recordNotFound(Long recordId) {
+        return new NotFoundException("Record " + recordId + " not found for user " + userId);
+    }
+}
@@ -0,0 +1,546 @@
+package org.marchenko.storage;
+
+import org.marchenko.exception.CreateException;
+import org.marchenko.exception.Gone;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.exception.PreconditionFailed;
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
+import org.marchenko.model.PhoneNumber;
+import org.marchenko.model.Record;
+import org.marchenko.model.RecordChange;
+import org.marchenko.model.RecordChanges;
+import org.marchenko.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/** Versions start at the wall clock shifted left by 20 bits, so they grow across restarts. */
+@Component
+public class PhoneBookStorage {
+    private static final int LOG_STRIPES = 64;
+
+    private static final int DEFAULT_RETAINED_CHANGES = 1000;
+
+    private static final Comparator<User> BY_ID = Comparator.comparing(User::getId);
+
+    private final AtomicLong userIds = new AtomicLong();
+
+    private final AtomicLong recordIds = new AtomicLong();
+
+    private final AtomicLong versions = new AtomicLong(System.currentTimeMillis() << 20);
+
+    private final LongSupplier nextVersion = versions::incrementAndGet;
+
+    private final Supplier<RecordTable> recordTables;
+
+    private final int retainedChanges;
+
+    private final Shard[] shards;
+
+    private final ConcurrentMap<Long, Long> userIdsByPhone = new ConcurrentHashMap<>();
+
+    private final PhoneDirectory directory = new PhoneDirectory();
+
+    public PhoneBookStorage(MutationLog log) {
+        this(log, false);
+    }
+
+    public PhoneBookStorage(MutationLog log, boolean compactRecords) {
+        this(ShardLogs.of(log), compactRecords);
+    }
+
+    public PhoneBookStorage(ShardLogs<? extends MutationLog> logs, boolean compactRecords) {
+        this(logs, compactRecords, DEFAULT_RETAINED_CHANGES);
+    }
+
+    @Autowired
+    public PhoneBookStorage(ShardLogs<? extends MutationLog> logs,
+                            @Value("${phonebook.storage.compact-records:false}") boolean compactRecords,
+                            @Value("${phonebook.storage.retained-changes:" + DEFAULT_RETAINED_CHANGES + "}") int retainedChanges) {
+        if (retainedChanges < 0) {
+            throw new IllegalArgumentException("Retained changes must not be negative: " + retainedChanges);
+        }
+        this.recordTables = compactRecords ? CompactRecordTable::new : TreeRecordTable::new;
+        this.retainedChanges = retainedChanges;
+        this.shards = new Shard[logs.size()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(logs.get(i));
+        }
+    }
+
+    public User createUser(String name, String phone) {
+        long id = userIds.incrementAndGet();
+        User user = new User(id, name, phone, nextVersion.getAsLong());
+        if (userIdsByPhone.putIfAbsent(user.getPhoneKey(), id) != null) {
+            throw new CreateException("User with phone " + phone + " already exists");
+        }
+        Shard shard = shard(id);
+        shard.books.put(id, newBook(shard, id, null));
+        shard.users.put(id, user);
+        shard.log.awaitDurable(shard.userChanged(id));
+        return user;
+    }
+
+    public User findUser(Long id) {
+        User user = shard(id).users.get(id);
+        if (user == null) {
+            throw new NotFoundException("User " + id + " not found");
+        }
+        return user;
+    }
+
+    public List<User> findUsers(int pageNumber, int pageSize) {
+        List<Iterator<User>> iterators = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            iterators.add(shard.users.values().iterator());
+        }
+        return page(merge(iterators, BY_ID), pageNumber, pageSize);
+    }
+
+    public List<User> findUsersAfter(long afterId, int pageSize) {
+        List<Iterator<User>> iterators = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            iterators.add(shard.users.tailMap(afterId, false).values().iterator());
+        }
+        return page(merge(iterators, BY_ID), 0, pageSize);
+    }
+
+    public List<User> findUsersByName(String name, int pageNumber, int pageSize) {
+        String query = NameIndex.fold(name);
+        List<Iterator<User>> iterators = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            iterators.add(shard.matching(shard.nameIndex.candidates(query), query));
+        }
+        return page(merge(iterators, BY_ID), pageNumber, pageSize);
+    }
+
+    public List<User> findUsersByNameAfter(String name, long afterId, int pageSize) {
+        String query = NameIndex.fold(name);
+        List<Iterator<User>> iterators = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            iterators.add(shard.matching(shard.nameIndex.candidates(query).tailSet(afterId, false), query));
+        }
+        return page(merge(iterators, BY_ID), 0, pageSize);
+    }
+
+    public User updateUser(Long id, String name, String phone) {
+        return updateUser(id, name, phone, null);
+    }
+
+    public User updateUser(Long id, String name, String phone, Long expectedVersion) {
+        Shard shard = shard(id);
+        while (true) {
+            User current = findUser(id);
+            if (expectedVersion != null && current.getVersion() != expectedVersion) {
+                throw new PreconditionFailed("User " + id + " is at version " + current.getVersion());
+            }
+            User updated = new User(id,
+                    name == null ? current.getName() : name,
+                    phone == null ? current.getPhone() : phone,
+                    nextVersion.getAsLong());
+            boolean phoneChanged = updated.getPhoneKey() != current.getPhoneKey();
+            if (phoneChanged) {
+                Long owner = userIdsByPhone.putIfAbsent(updated.getPhoneKey(), id);
+                if (owner != null) {
+                    if (!owner.equals(id)) {
+                        throw new CreateException("User with phone " + updated.getPhone() + " already exists");
+                    }
+                    // a concurrent update of the same user holds this phone, wait until it lands or backs off
+                    Thread.yield();
+                    continue;
+                }
+            }
+            if (shard.users.replace(id, current, updated)) {
+                if (phoneChanged) {
+                    userIdsByPhone.remove(current.getPhoneKey(), id);
+                }
+                shard.log.awaitDurable(shard.userChanged(id));
+                return updated;
+            }
+            if (phoneChanged) {
+                userIdsByPhone.remove(updated.getPhoneKey(), id);
+            }
+        }
+    }
+
+    public User deleteUser(Long id) {
+        Shard shard = shard(id);
+        User user = shard.users.remove(id);
+        if (user == null) {
+            throw new NotFoundException("User " + id + " not found");
+        }
+        userIdsByPhone.remove(user.getPhoneKey(), id);
+        long lsn = shard.userChanged(id);
+        shard.unlinkBook(id);
+        shard.log.awaitDurable(lsn);
+        return user;
+    }
+
+    public Record createRecord(Long userId, String name, String phone) {
+        return book(userId).create(recordIds.incrementAndGet(), name, phone);
+    }
+
+    public Record findRecord(Long userId, Long recordId) {
+        return book(userId).find(recordId);
+    }
+
+    public Record findRecordByPhone(Long userId, String phone) {
+        return book(userId).findByPhone(PhoneNumber.key(phone), phone);
+    }
+
+    public User findUserByPhone(String phone) {
+        Long id = userIdsByPhone.get(PhoneNumber.key(phone));
+        User user = id == null ? null : shard(id).users.get(id);
+        if (user == null) {
+            throw new NotFoundException("User with phone " + phone + " not found");
+        }
+        return user;
+    }
+
+    public List<PhoneHolder> findPhoneHolders(String phone, long afterRecordId, int limit) {
+        return directory.holders(PhoneNumber.key(phone), afterRecordId, limit,
+                userId -> shard(userId).books.containsKey(userId));
+    }
+
+    public List<Record> findRecords(Long userId, int pageNumber, int pageSize) {
+        return book(userId).page(pageNumber, pageSize);
+    }
+
+    public List<Record> findRecordsAfter(Long userId, long afterId, int pageSize) {
+        return book(userId).pageAfter(afterId, pageSize);
+    }
+
+    public List<OperationResult<Record>> applyRecordOperations(Long userId, List<Operation> operations,
+                                                              Consumer<Operation> validator) {
+        return book(userId).apply(operations, validator, recordIds::incrementAndGet);
+    }
+
+    public Record updateRecord(Long userId, Long recordId, String name, String phone) {
+        return updateRecord(userId, recordId, name, phone, null);
+    }
+
+    public Record updateRecord(Long userId, Long recordId, String name, String phone, Long expectedVersion) {
+        return book(userId).update(recordId, name, phone, expectedVersion);
+    }
+
+    public long recordsVersion(Long userId) {
+        return book(userId).version();
+    }
+
+    public Record deleteRecord(Long userId, Long recordId) {
+        return book(userId).delete(recordId);
+    }
+
+    public RecordChanges findRecordChanges(Long userId, long since, int limit) {
+        PhoneBook book = book(userId);
+        long version = book.version();
+        List<RecordChange> changes = book.changesSince(since, limit);
+        if (changes == null) {
+            throw new Gone("Changes of user " + userId + " since " + since + " are no longer available");
+        }
+        long sequence = changes.size() == limit && limit > 0
+                ? changes.get(limit - 1).getSequence()
+                : Math.max(version, changes.isEmpty() ? since : changes.get(changes.size() - 1).getSequence());
+        return new RecordChanges(sequence, changes);
+    }
+
+    public CompletableFuture<Void> awaitRecordChange(Long userId, long since) {
+        return book(userId).awaitChange(since);
+    }
+
+    public int userCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.users.size();
+        }
+        return count;
+    }
+
+    /** Visits every phone book. */
+    public long recordCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            for (PhoneBook book : shard.books.values()) {
+                count += book.size();
+            }
+        }
+        return count;
+    }
+
+    int reclaim(int budget) {
+        int reclaimed = 0;
+        for (Shard shard : shards) {
+            PhoneBook book;
+            while (reclaimed < budget && (book = shard.tombstones.peek()) != null) {
+                int requested = budget - reclaimed;
+                int removed = book.reclaim(requested);
+                reclaimed += removed;
+                if (removed < requested) {
+                    shard.tombstones.remove(book);
+                }
+            }
+        }
+        return reclaimed;
+    }
+
+    public int tombstoneCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.tombstones.size();
+        }
+        return count;
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    int nameIndexSize() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.nameIndex.size();
+        }
+        return size;
+    }
+
+    int phoneIndexSize() {
+        return userIdsByPhone.size();
+    }
+
+    long phoneDirectorySize() {
+        return directory.size();
+    }
+
+    long userIdCounter() {
+        return userIds.get();
+    }
+
+    long recordIdCounter() {
+        return recordIds.get();
+    }
+
+    void advanceIdCounters(long userId, long recordId) {
+        userIds.accumulateAndGet(userId, Math::max);
+        recordIds.accumulateAndGet(recordId, Math::max);
+    }
+
+    void dump(int shard, MutationHandler out) {
+        Shard dumped = shards[shard];
+        for (User user : dumped.users.values()) {
+            out.putUser(user.getId(), user.getName(), user.getPhone());
+            PhoneBook book = dumped.books.get(user.getId());
+            if (book != null) {
+                book.dump(out);
+            }
+        }
+    }
+
+    /** Runs once every shard is restored, only their final state tells who holds a number. */
+    void indexPhones() {
+        userIdsByPhone.clear();
+        for (Shard shard : shards) {
+            for (User user : shard.users.values()) {
+                userIdsByPhone.put(user.getPhoneKey(), user.getId());
+            }
+        }
+    }
+
+    void loadAll() {
+        for (Shard shard : shards) {
+            for (PhoneBook book : shard.books.values()) {
+                book.load();
+            }
+        }
+    }
+
+    /** Applies recovered changes without validation or logging. */
+    Restorer restorer() {
+        return new Restorer();
+    }
+
+    class Restorer implements MutationHandler, SnapshotFile.Loader {
+        @Override
+        public void putUser(long id, String name, String phone, RecordBlock records) {
+            Shard shard = restoreUser(id, name, phone);
+            shard.books.put(id, newBook(shard, id, records));
+        }
+
+        @Override
+        public void putUser(long id, String name, String phone) {
+            Shard shard = restoreUser(id, name, phone);
+            shard.books.computeIfAbsent(id, key -> newBook(shard, id, null));
+        }
+
+        private Shard restoreUser(long id, String name, String phone) {
+            Shard shard = shard(id);
+            shard.users.put(id, new User(id, name, phone, nextVersion.getAsLong()));
+            shard.nameIndex.reindex(id);
+            advanceIdCounters(id, 0);
+            return shard;
+        }
+
+        @Override
+        public void deleteUser(long id) {
+            Shard shard = shard(id);
+            shard.users.remove(id);
+            shard.unlinkBook(id);
+            shard.nameIndex.reindex(id);
+        }
+
+        @Override
+        public void putRecord(long userId, long id, String name, String phone) {
+            PhoneBook book = shard(userId).books.get(userId);
+            if (book != null) {
+                book.restore(new Record(id, name, phone, nextVersion.getAsLong()));
+            }
+            advanceIdCounters(0, id);
+        }
+
+        @Override
+        public void deleteRecord(long userId, long id) {
+            PhoneBook book = shard(userId).books.get(userId);
+            if (book != null) {
+                book.restoreDeleted(id);
+            }
+        }
+    }
+
+    private final class Shard {
+        final MutationLog log;
+
+        final Object[] logStripes = new Object[LOG_STRIPES];
+
+        final ConcurrentNavigableMap<Long, User> users = new ConcurrentSkipListMap<>();
+
+        final ConcurrentMap<Long, PhoneBook> books = new ConcurrentHashMap<>();
+
+        final Queue<PhoneBook> tombstones = new ConcurrentLinkedQueue<>();
+
+        final NameIndex nameIndex = new NameIndex(id -> {
+            User user = users.get(id);
+            return user == null ? null : user.getName();
+        });
+
+        Shard(MutationLog log) {
+            this.log = log;
+            for (int i = 0; i < LOG_STRIPES; i++) {
+                logStripes[i] = new Object();
+            }
+        }
+
+        long userChanged(long id) {
+            nameIndex.reindex(id);
+            synchronized (logStripes[(int) (id & (LOG_STRIPES - 1))]) {
+                User user = users.get(id);
+                return user == null ? log.deleteUser(id) : log.putUser(user);
+            }
+        }
+
+        void unlinkBook(long id) {
+            PhoneBook book = books.remove(id);
+            if (book != null) {
+                book.close();
+                tombstones.add(book);
+            }
+        }
+
+        Iterator<User> matching(NavigableSet<Long> candidates, String query) {
+            return candidates.stream()
+                    .map(users::get)
+                    .filter(user -> user != null && NameIndex.matches(user.getName(), query))
+                    .iterator();
+        }
+    }
+
+    private Shard shard(long userId) {
+        return shards[(int) Math.floorMod(userId, (long) shards.length)];
+    }
+
+    private PhoneBook newBook(Shard shard, long id, RecordBlock records) {
+        return new PhoneBook(id, shard.log, nextVersion, recordTables.get(), retainedChanges, directory, records);
+    }
+
+    private PhoneBook book(Long userId) {
+        PhoneBook book = shard(userId).books.get(userId);
+        if (book == null) {
+            throw new NotFoundException("User " + userId + " not found");
+        }
+        return book;
+    }
+
+    private static <T> Iterator<T> merge(List<Iterator<T>> iterators, Comparator<? super T> order) {
+        if (iterators.size() == 1) {
+            return iterators.get(0);
+        }
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(iterators.size(),
+                (left, right) -> order.compare(left.value, right.value));
+        for (Iterator<T> iterator : iterators) {
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Head<T> head = heads.remove();
+                T value = head.value;
+                if (head.rest.hasNext()) {
+                    head.value = head.rest.next();
+                    heads.add(head);
+                }
+                return value;
+            }
+        };
+    }
+
+    private static final class Head<T> {
+        private T value;
+
+        private final Iterator<T> rest;
+
+        private Head(T value, Iterator<T> rest) {
+            this.value = value;
+            this.rest = rest;
+        }
+    }
+
+    private static <T> List<T> page(Iterator<T> iterator, int pageNumber, int pageSize) {
+        return slice(iterator, (long) pageNumber * pageSize, pageSize);
+    }
+
+    static <T> List<T> slice(Iterator<T> iterator, long skip, int limit) {
+        while (skip-- > 0 && iterator.hasNext()) {
+            iterator.next();
+        }
+        List<T> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit && iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,185 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.PhoneHolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/** Records of all users by phone key, for reverse lookups. */
+final class PhoneDirectory {
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    PhoneDirectory() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    void add(long phoneKey, long recordId, long userId) {
+        Stripe stripe = stripe(phoneKey);
+        Lock writeLock = stripe.lock.writeLock();
+        writeLock.lock();
+        try {
+            if (stripe.postings.computeIfAbsent(phoneKey, key -> new Postings()).add(recordId, userId)) {
+                stripe.size++;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void remove(long phoneKey, long recordId) {
+        Stripe stripe = stripe(phoneKey);
+        Lock writeLock = stripe.lock.writeLock();
+        writeLock.lock();
+        try {
+            Postings postings = stripe.postings.get(phoneKey);
+            if (postings != null && postings.remove(recordId)) {
+                stripe.size--;
+                if (postings.live == 0) {
+                    stripe.postings.remove(phoneKey);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    List<PhoneHolder> holders(long phoneKey, long afterRecordId, int limit, LongPredicate liveUsers) {
+        Stripe stripe = stripe(phoneKey);
+        Lock readLock = stripe.lock.readLock();
+        readLock.lock();
+        try {
+            Postings postings = stripe.postings.get(phoneKey);
+            return postings == null ? new ArrayList<>() : postings.after(afterRecordId, limit, liveUsers);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            Lock readLock = stripe.lock.readLock();
+            readLock.lock();
+            try {
+                size += stripe.size;
+            } finally {
+                readLock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripe(long phoneKey) {
+        long hash = phoneKey * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash >>> 58)];
+    }
+
+    private static final class Stripe {
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        final Map<Long, Postings> postings = new HashMap<>();
+
+        long size;
+    }
+
+    /** Pairs of {@code [record id, user id]}, a user id of zero marks a removed pair. */
+    private static final class Postings {
+        private static final long DEAD = 0;
+
+        long[] entries = new long[2];
+
+        int size;
+
+        int live;
+
+        boolean add(long recordId, long userId) {
+            int position = position(recordId);
+            if (position >= 0) {
+                boolean revived = entries[2 * position + 1] == DEAD;
+                if (revived) {
+                    live++;
+                }
+                entries[2 * position + 1] = userId;
+                return revived;
+            }
+            position = -(position + 1);
+            if (2 * size == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            System.arraycopy(entries, 2 * position, entries, 2 * position + 2, 2 * (size - position));
+            entries[2 * position] = recordId;
+            entries[2 * position + 1] = userId;
+            size++;
+            live++;
+            return true;
+        }
+
+        boolean remove(long recordId) {
+            int position = position(recordId);
+            if (position < 0 || entries[2 * position + 1] == DEAD) {
+                return false;
+            }
+            entries[2 * position + 1] = DEAD;
+            live--;
+            if (live > 0 && live * 2 < size) {
+                compact();
+            }
+            return true;
+        }
+
+        List<PhoneHolder> after(long afterRecordId, int limit, LongPredicate liveUsers) {
+            int position = position(afterRecordId);
+            List<PhoneHolder> page = new ArrayList<>(Math.min(limit, live));
+            for (int i = position >= 0 ? position + 1 : -(position + 1); i < size && page.size() < limit; i++) {
+                long userId = entries[2 * i + 1];
+                if (userId != DEAD && liveUsers.test(userId)) {
+                    page.add(new PhoneHolder(userId, entries[2 * i]));
+                }
+            }
+            return page;
+        }
+
+        private void compact() {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (entries[2 * i + 1] != DEAD) {
+                    entries[2 * kept] = entries[2 * i];
+                    entries[2 * kept + 1] = entries[2 * i + 1];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (entries.length > 8 && 4 * size < entries.length / 2) {
+                entries = Arrays.copyOf(entries, entries.length / 2);
+            }
+        }
+
+        private int position(long recordId) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                long id = entries[2 * middle];
+                if (id < recordId) {
+                    low = middle + 1;
+                } else if (id > recordId) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
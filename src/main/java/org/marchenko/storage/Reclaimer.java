@@ -0,0 +1,59 @@
+package org.marchenko.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/** Removes the records of deleted users in small background batches. */
+@Component
+public class Reclaimer {
+    private static final Logger log = LoggerFactory.getLogger(Reclaimer.class);
+
+    private final PhoneBookStorage storage;
+
+    private final int batch;
+
+    private final long intervalMillis;
+
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public Reclaimer(PhoneBookStorage storage,
+                     @Value("${phonebook.storage.reclaim-batch:10000}") int batch,
+                     @Value("${phonebook.storage.reclaim-interval-millis:50}") long intervalMillis) {
+        this.storage = storage;
+        this.batch = batch;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reclaimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::tick, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            storage.reclaim(batch);
+        } catch (RuntimeException e) {
+            log.error("Reclaiming deleted records failed", e);
+        }
+    }
+}
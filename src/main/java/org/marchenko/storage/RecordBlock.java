@@ -0,0 +1,106 @@
+package org.marchenko.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/** Records of one user in a snapshot, decoded from the mapping on first use. */
+final class RecordBlock {
+    private static final int WINDOW = 1 << 30;
+
+    static final int KEY_BYTES = 2 * Long.BYTES;
+
+    interface Visitor {
+        void record(long id, String name, String phone);
+    }
+
+    interface KeyVisitor {
+        void key(long id, long phoneKey);
+    }
+
+    private final FileChannel channel;
+
+    private final long offset;
+
+    private final long length;
+
+    private final int count;
+
+    RecordBlock(FileChannel channel, long offset, long length, int count) {
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+        this.count = count;
+    }
+
+    int count() {
+        return count;
+    }
+
+    void forEachKey(int from, int to, KeyVisitor visitor) {
+        try {
+            long position = offset + length + (long) from * KEY_BYTES;
+            long end = offset + length + (long) to * KEY_BYTES;
+            while (position < end) {
+                MappedByteBuffer window = map(position, end);
+                while (window.remaining() >= KEY_BYTES) {
+                    visitor.key(window.getLong(), window.getLong());
+                }
+                position += window.capacity();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read phone keys from snapshot", e);
+        }
+    }
+
+    void forEach(Visitor visitor) {
+        if (count == 0) {
+            return;
+        }
+        try {
+            long position = offset;
+            long end = offset + length;
+            MappedByteBuffer window = map(position, end);
+            for (int i = 0; i < count; i++) {
+                int start = window.position();
+                long id;
+                String name;
+                String phone;
+                try {
+                    id = window.getLong();
+                    name = readString(window);
+                    phone = readString(window);
+                } catch (BufferUnderflowException e) {
+                    if (start == 0) {
+                        throw new IOException("Truncated record block at " + position);
+                    }
+                    position += start;
+                    window = map(position, end);
+                    i--;
+                    continue;
+                }
+                visitor.record(id, name, phone);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read records from snapshot", e);
+        }
+    }
+
+    private MappedByteBuffer map(long position, long end) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position));
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
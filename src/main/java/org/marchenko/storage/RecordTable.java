@@ -0,0 +1,29 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.Record;
+
+import java.util.List;
+
+interface RecordTable {
+    long NONE = 0;
+
+    Record get(long id);
+
+    long idByPhone(long phoneKey);
+
+    Record put(Record record);
+
+    Record remove(long id);
+
+    List<Record> page(long offset, int limit);
+
+    List<Record> pageAfter(long afterId, int limit);
+
+    int size();
+
+    int truncate(int count, Removed removed);
+
+    interface Removed {
+        void removed(long id, long phoneKey);
+    }
+}
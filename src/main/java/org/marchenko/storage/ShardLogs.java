@@ -0,0 +1,32 @@
+package org.marchenko.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class ShardLogs<L extends MutationLog> {
+    private final List<L> logs;
+
+    public ShardLogs(List<L> logs) {
+        if (logs.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is needed");
+        }
+        this.logs = Collections.unmodifiableList(new ArrayList<>(logs));
+    }
+
+    public static <L extends MutationLog> ShardLogs<L> of(L log) {
+        return new ShardLogs<>(Collections.singletonList(log));
+    }
+
+    public static ShardLogs<MutationLog> none(int shards) {
+        return new ShardLogs<>(Collections.nCopies(shards, MutationLog.NONE));
+    }
+
+    public L get(int shard) {
+        return logs.get(shard);
+    }
+
+    public int size() {
+        return logs.size();
+    }
+}
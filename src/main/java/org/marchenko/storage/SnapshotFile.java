@@ -0,0 +1,323 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.PhoneNumber;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** Record blocks, then the user table and a trailer, renamed into place once complete. */
+final class SnapshotFile {
+    private static final int MAGIC = 0x50425333;
+
+    private static final int TRAILER_SIZE = 5 * Long.BYTES + Integer.BYTES;
+
+    private static final String PREFIX = "snapshot-";
+
+    private static final String SUFFIX = ".snap";
+
+    interface Body {
+        void write(MutationHandler out) throws IOException;
+    }
+
+    interface Loader {
+        void putUser(long id, String name, String phone, RecordBlock records);
+    }
+
+    static final class Header {
+        final long lsn;
+        final long userIds;
+        final long recordIds;
+
+        Header(long lsn, long userIds, long recordIds) {
+            this.lsn = lsn;
+            this.userIds = userIds;
+            this.recordIds = recordIds;
+        }
+    }
+
+    /** Keeps the channel open while record blocks may still be decoded. */
+    static final class Loaded implements AutoCloseable {
+        final Header header;
+        private final FileChannel channel;
+
+        private Loaded(Header header, FileChannel channel) {
+            this.header = header;
+            this.channel = channel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private SnapshotFile() {
+    }
+
+    static Path write(Path directory, Header header, Body body) throws IOException {
+        Path target = directory.resolve(String.format("%s%020d%s", PREFIX, header.lsn, SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             CountingOutputStream counting = new CountingOutputStream(new BufferedOutputStream(file, 1 << 16));
+             DataOutputStream out = new DataOutputStream(counting)) {
+            out.writeInt(MAGIC);
+            Writer writer = new Writer(out, counting);
+            body.write(writer);
+            writer.finishBlock();
+            long tableOffset = counting.count;
+            for (UserEntry user : writer.users) {
+                out.writeLong(user.id);
+                writeString(out, user.name);
+                writeString(out, user.phone);
+                out.writeLong(user.offset);
+                out.writeLong(user.length);
+                out.writeInt(user.count);
+            }
+            out.writeLong(tableOffset);
+            out.writeLong(writer.users.size());
+            out.writeLong(header.lsn);
+            out.writeLong(header.userIds);
+            out.writeLong(header.recordIds);
+            out.writeInt(MAGIC);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    /** Returns {@code null} when there is no snapshot. */
+    static Loaded openLatest(Path directory, Loader loader) throws IOException {
+        List<Path> snapshots = list(directory);
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        Path latest = snapshots.get(snapshots.size() - 1);
+        FileChannel channel = FileChannel.open(latest, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < Integer.BYTES + TRAILER_SIZE) {
+                throw new IOException("Snapshot " + latest + " is truncated");
+            }
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, size - TRAILER_SIZE, TRAILER_SIZE);
+            long tableOffset = trailer.getLong();
+            long userCount = trailer.getLong();
+            Header header = new Header(trailer.getLong(), trailer.getLong(), trailer.getLong());
+            if (trailer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file " + latest);
+            }
+            long tableEnd = size - TRAILER_SIZE;
+            UserTableReader table = new UserTableReader(channel, tableOffset, tableEnd);
+            for (long i = 0; i < userCount; i++) {
+                table.next(loader);
+            }
+            return new Loaded(header, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    static void deleteOlderThan(Path directory, Path keep) throws IOException {
+        for (Path snapshot : list(directory)) {
+            if (snapshot.getFileName().toString().compareTo(keep.getFileName().toString()) < 0) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path path : stream) {
+                snapshots.add(path);
+            }
+        }
+        Collections.sort(snapshots);
+        return snapshots;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Remaps as it goes, so tables larger than one mapping are supported. */
+    private static final class UserTableReader {
+        private static final int WINDOW = 1 << 26;
+
+        private final FileChannel channel;
+
+        private final long end;
+
+        private long position;
+
+        private MappedByteBuffer window;
+
+        private UserTableReader(FileChannel channel, long position, long end) throws IOException {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+            this.window = map();
+        }
+
+        private void next(Loader loader) throws IOException {
+            int start = window.position();
+            try {
+                long id = window.getLong();
+                String name = readString(window);
+                String phone = readString(window);
+                long offset = window.getLong();
+                long length = window.getLong();
+                int count = window.getInt();
+                loader.putUser(id, name, phone, new RecordBlock(channel, offset, length, count));
+            } catch (BufferUnderflowException e) {
+                if (start == 0) {
+                    throw new IOException("Truncated user table at " + position);
+                }
+                position += start;
+                window = map();
+                next(loader);
+            }
+        }
+
+        private MappedByteBuffer map() throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, end - position));
+        }
+
+        private static String readString(ByteBuffer buffer) {
+            int length = buffer.getInt();
+            if (length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class UserEntry {
+        private final long id;
+        private final String name;
+        private final String phone;
+        private final long offset;
+        private long length;
+        private int count;
+
+        private UserEntry(long id, String name, String phone, long offset) {
+            this.id = id;
+            this.name = name;
+            this.phone = phone;
+            this.offset = offset;
+        }
+    }
+
+    private static final class Writer implements MutationHandler {
+        private final DataOutputStream out;
+
+        private final CountingOutputStream counting;
+
+        private final List<UserEntry> users = new ArrayList<>();
+
+        private UserEntry current;
+
+        private long[] keys = new long[2 * 64];
+
+        private Writer(DataOutputStream out, CountingOutputStream counting) {
+            this.out = out;
+            this.counting = counting;
+        }
+
+        @Override
+        public void putUser(long id, String name, String phone) {
+            finishBlock();
+            current = new UserEntry(id, name, phone, counting.count);
+            users.add(current);
+        }
+
+        @Override
+        public void deleteUser(long id) {
+            throw new UnsupportedOperationException("Snapshots only hold live entities");
+        }
+
+        @Override
+        public void putRecord(long userId, long id, String name, String phone) {
+            if (current == null || current.id != userId) {
+                throw new IllegalStateException("Records of user " + userId + " must follow the user");
+            }
+            try {
+                out.writeLong(id);
+                writeString(out, name);
+                writeString(out, phone);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (2 * current.count == keys.length) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+            }
+            keys[2 * current.count] = id;
+            keys[2 * current.count + 1] = PhoneNumber.key(phone);
+            current.count++;
+        }
+
+        @Override
+        public void deleteRecord(long userId, long id) {
+            throw new UnsupportedOperationException("Snapshots only hold live entities");
+        }
+
+        private void finishBlock() {
+            if (current == null) {
+                return;
+            }
+            current.length = counting.count - current.offset;
+            try {
+                for (int i = 0; i < 2 * current.count; i++) {
+                    out.writeLong(keys[i]);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current = null;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
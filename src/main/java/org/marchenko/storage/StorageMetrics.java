@@ -0,0 +1,43 @@
+package org.marchenko.storage;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/** Gauges over {@link PhoneBookStorage}, read when the registry is scraped. */
+@Component
+public class StorageMetrics implements MeterBinder {
+    private final PhoneBookStorage storage;
+
+    @Autowired
+    public StorageMetrics(PhoneBookStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("phonebook.users", storage, PhoneBookStorage::userCount)
+                .description("Number of users")
+                .register(registry);
+        Gauge.builder("phonebook.records", storage, PhoneBookStorage::recordCount)
+                .description("Number of records of all users")
+                .register(registry);
+        Gauge.builder("phonebook.tombstones", storage, PhoneBookStorage::tombstoneCount)
+                .description("Deleted users whose records are not reclaimed yet")
+                .register(registry);
+        Gauge.builder("phonebook.index.entries", storage, PhoneBookStorage::nameIndexSize)
+                .tag("index", "name")
+                .description("Distinct n-grams in the user name index")
+                .register(registry);
+        Gauge.builder("phonebook.index.entries", storage, PhoneBookStorage::phoneIndexSize)
+                .tag("index", "user-phone")
+                .description("Phone numbers in the user phone index")
+                .register(registry);
+        Gauge.builder("phonebook.index.entries", storage, PhoneBookStorage::phoneDirectorySize)
+                .tag("index", "record-phone")
+                .description("Records posted in the cross-user phone directory")
+                .register(registry);
+    }
+}
@@ -0,0 +1,71 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.Record;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+final class TreeRecordTable implements RecordTable {
+    private final NavigableMap<Long, Record> records = new TreeMap<>();
+
+    private final Map<Long, Long> recordIdsByPhone = new HashMap<>();
+
+    @Override
+    public Record get(long id) {
+        return records.get(id);
+    }
+
+    @Override
+    public long idByPhone(long phoneKey) {
+        Long id = recordIdsByPhone.get(phoneKey);
+        return id == null ? NONE : id;
+    }
+
+    @Override
+    public Record put(Record record) {
+        Record previous = records.put(record.getId(), record);
+        if (previous != null) {
+            recordIdsByPhone.remove(previous.getPhoneKey(), previous.getId());
+        }
+        recordIdsByPhone.put(record.getPhoneKey(), record.getId());
+        return previous;
+    }
+
+    @Override
+    public Record remove(long id) {
+        Record previous = records.remove(id);
+        if (previous != null) {
+            recordIdsByPhone.remove(previous.getPhoneKey(), previous.getId());
+        }
+        return previous;
+    }
+
+    @Override
+    public List<Record> page(long offset, int limit) {
+        return PhoneBookStorage.slice(records.values().iterator(), offset, limit);
+    }
+
+    @Override
+    public List<Record> pageAfter(long afterId, int limit) {
+        return PhoneBookStorage.slice(records.tailMap(afterId, false).values().iterator(), 0, limit);
+    }
+
+    @Override
+    public int size() {
+        return records.size();
+    }
+
+    @Override
+    public int truncate(int count, Removed removed) {
+        int truncated = 0;
+        for (; truncated < count && !records.isEmpty(); truncated++) {
+            Record last = records.pollLastEntry().getValue();
+            recordIdsByPhone.remove(last.getPhoneKey(), last.getId());
+            removed.removed(last.getId(), last.getPhoneKey());
+        }
+        return truncated;
+    }
+}
@@ -0,0 +1,409 @@
+package org.marchenko.storage;
+
+import org.marchenko.model.Record;
+import org.marchenko.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/** Append-only log in segment files named after their first sequence number. */
+public class WriteAheadLog implements MutationLog {
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final String SEGMENT_PREFIX = "wal-";
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final ByteBuffer ROTATE = ByteBuffer.allocate(0);
+
+    private final Path directory;
+
+    private final boolean sync;
+
+    private final Object appendLock = new Object();
+
+    private final Object durableLock = new Object();
+
+    private List<ByteBuffer> pending = new ArrayList<>();
+
+    private long lastLsn;
+
+    private long durableLsn;
+
+    private long rotations;
+
+    private final NavigableMap<Long, CompletableFuture<Void>> waiters = new TreeMap<>();
+
+    private volatile IOException failure;
+
+    private boolean closed;
+
+    private FileChannel segment;
+
+    private Thread flusher;
+
+    public WriteAheadLog(Path directory, boolean sync) {
+        this.directory = directory;
+        this.sync = sync;
+    }
+
+    long replay(long afterLsn, MutationHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        long last = afterLsn;
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path path = segments.get(i);
+            long valid = 0;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    long lsn;
+                    byte[] payload;
+                    try {
+                        lsn = in.readLong();
+                        int crc = in.readInt();
+                        if (length < 0 || length > channel.size()) {
+                            throw new IOException("Bad frame length " + length);
+                        }
+                        payload = new byte[length];
+                        in.readFully(payload);
+                        if (crc != crc(payload)) {
+                            throw new IOException("Checksum mismatch at sequence " + lsn);
+                        }
+                    } catch (IOException e) {
+                        if (i < segments.size() - 1) {
+                            throw new IOException("Corrupted log segment " + path, e);
+                        }
+                        log.warn("Truncating torn tail of {} at byte {}: {}", path, valid, e.getMessage());
+                        break;
+                    }
+                    valid += HEADER_SIZE + length;
+                    if (lsn > afterLsn) {
+                        Mutations.read(new DataInputStream(new ByteArrayInputStream(payload)), handler);
+                        last = lsn;
+                    }
+                }
+            }
+            if (i == segments.size() - 1 && valid < Files.size(path)) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                }
+            }
+        }
+        return last;
+    }
+
+    void open(long lastLsn) throws IOException {
+        Files.createDirectories(directory);
+        this.lastLsn = lastLsn;
+        this.durableLsn = lastLsn;
+        this.segment = openSegment(lastLsn + 1);
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    long lastLsn() {
+        synchronized (appendLock) {
+            return lastLsn;
+        }
+    }
+
+    long rotate() throws IOException {
+        long lsn;
+        long rotation;
+        synchronized (durableLock) {
+            rotation = rotations;
+        }
+        synchronized (appendLock) {
+            pending.add(ROTATE);
+            appendLock.notifyAll();
+            lsn = lastLsn;
+        }
+        synchronized (durableLock) {
+            while (rotations == rotation) {
+                if (failure != null) {
+                    throw new IOException("Write-ahead log failed", failure);
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while rotating the write-ahead log", e);
+                }
+            }
+        }
+        return lsn;
+    }
+
+    void deleteSegmentsUpTo(long lsn) throws IOException {
+        for (Path path : segments()) {
+            if (firstLsn(path) <= lsn) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    void close() {
+        synchronized (appendLock) {
+            closed = true;
+            appendLock.notifyAll();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public long putUser(User user) {
+        return append(out -> Mutations.putUser(out, user.getId(), user.getName(), user.getPhone()));
+    }
+
+    @Override
+    public long deleteUser(long id) {
+        return append(out -> Mutations.deleteUser(out, id));
+    }
+
+    @Override
+    public long putRecord(long userId, Record record) {
+        return append(out -> Mutations.putRecord(out, userId, record.getId(), record.getName(), record.getPhone()));
+    }
+
+    @Override
+    public long deleteRecord(long userId, long recordId) {
+        return append(out -> Mutations.deleteRecord(out, userId, recordId));
+    }
+
+    @Override
+    public void awaitDurable(long lsn) {
+        if (!sync || DeferredDurability.defer(this, lsn)) {
+            return;
+        }
+        synchronized (durableLock) {
+            while (durableLsn < lsn) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Write-ahead log failed", failure);
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> whenDurable(long lsn) {
+        if (!sync) {
+            return CompletableFuture.completedFuture(null);
+        }
+        synchronized (durableLock) {
+            if (failure != null) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new UncheckedIOException("Write-ahead log failed", failure));
+                return failed;
+            }
+            if (durableLsn >= lsn) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return waiters.computeIfAbsent(lsn, key -> new CompletableFuture<>());
+        }
+    }
+
+    private long append(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try {
+            encoder.encode(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] payload = bytes.toByteArray();
+        int crc = crc(payload);
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            if (failure != null) {
+                throw new UncheckedIOException("Write-ahead log failed", failure);
+            }
+            long lsn = ++lastLsn;
+            ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+            frame.putInt(payload.length).putLong(lsn).putInt(crc).put(payload);
+            frame.flip();
+            pending.add(frame);
+            appendLock.notifyAll();
+            return lsn;
+        }
+    }
+
+    private void flushLoop() {
+        long written = durableLsn;
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchLsn;
+            boolean stop;
+            synchronized (appendLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchLsn = lastLsn;
+                stop = closed && batch.isEmpty();
+            }
+            if (stop) {
+                closeSegment();
+                return;
+            }
+            int rotated = 0;
+            try {
+                List<ByteBuffer> frames = new ArrayList<>(batch.size());
+                for (ByteBuffer frame : batch) {
+                    if (frame == ROTATE) {
+                        write(frames);
+                        frames.clear();
+                        segment.force(false);
+                        segment.close();
+                        segment = openSegment(written + 1);
+                        rotated++;
+                    } else {
+                        frames.add(frame);
+                        written++;
+                    }
+                }
+                write(frames);
+                if (sync) {
+                    segment.force(false);
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log failed", e);
+                synchronized (appendLock) {
+                    pending = new ArrayList<>();
+                }
+                List<CompletableFuture<Void>> failed;
+                synchronized (durableLock) {
+                    failure = e;
+                    durableLock.notifyAll();
+                    failed = new ArrayList<>(waiters.values());
+                    waiters.clear();
+                }
+                UncheckedIOException cause = new UncheckedIOException("Write-ahead log failed", e);
+                for (CompletableFuture<Void> waiter : failed) {
+                    waiter.completeExceptionally(cause);
+                }
+                return;
+            }
+            List<CompletableFuture<Void>> durable;
+            synchronized (durableLock) {
+                durableLsn = batchLsn;
+                rotations += rotated;
+                durableLock.notifyAll();
+                NavigableMap<Long, CompletableFuture<Void>> covered = waiters.headMap(batchLsn, true);
+                durable = new ArrayList<>(covered.values());
+                covered.clear();
+            }
+            for (CompletableFuture<Void> waiter : durable) {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    private void write(List<ByteBuffer> frames) throws IOException {
+        if (frames.isEmpty()) {
+            return;
+        }
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        while (remaining > 0) {
+            remaining -= segment.write(buffers);
+        }
+    }
+
+    private void closeSegment() {
+        try {
+            segment.force(false);
+            segment.close();
+        } catch (IOException e) {
+            log.warn("Failed to close write-ahead log segment", e);
+        }
+    }
+
+    private FileChannel openSegment(long firstLsn) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstLsn, SEGMENT_SUFFIX));
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long firstLsn(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private interface Encoder {
+        void encode(DataOutputStream out) throws IOException;
+    }
+}
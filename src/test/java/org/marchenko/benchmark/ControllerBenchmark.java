@@ -0,0 +1,116 @@
+package org.marchenko.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.marchenko.controller.ErrorHandler;
+import org.marchenko.controller.RecordController;
+import org.marchenko.controller.UserController;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.model.Record;
+import org.marchenko.service.RecordService;
+import org.marchenko.service.RecordServiceImpl;
+import org.marchenko.service.UserService;
+import org.marchenko.service.UserServiceImpl;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ControllerBenchmark {
+    private static final int USERS = 1000;
+
+    @Param({"1", "100"})
+    public int pageSize;
+
+    private ObjectMapper mapper;
+
+    private MockMvc mockMvc;
+
+    private List<Record> page;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        // without Spring Boot's logging setup logback defaults to DEBUG, which would dominate the request cost
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE);
+        UserService userService = new UserServiceImpl(storage);
+        RecordService recordService = new RecordServiceImpl(storage);
+        for (int i = 0; i < USERS; i++) {
+            Long userId = userService.createUser("user" + i, UserServiceBenchmark.phone(i)).getId();
+            for (int j = 0; j < pageSize; j++) {
+                recordService.createRecord(userId, "record" + j, UserServiceBenchmark.phone(j));
+            }
+        }
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new UserController(userService, mapper), new RecordController(recordService, mapper))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(mapper))
+                .setControllerAdvice(new ErrorHandler())
+                .build();
+        page = recordService.findAllRecords(1L, 0, pageSize);
+    }
+
+    @Benchmark
+    public String getUsers() throws Exception {
+        return mockMvc.perform(get("/users")
+                        .param("pageNumber", String.valueOf(ThreadLocalRandom.current().nextInt(USERS / pageSize)))
+                        .param("pageSize", String.valueOf(pageSize)))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getRecords() throws Exception {
+        return mockMvc.perform(get("/users/{user_id}/records", 1 + ThreadLocalRandom.current().nextInt(USERS))
+                        .param("pageSize", String.valueOf(pageSize)))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String getMissingUser() throws Exception {
+        return mockMvc.perform(get("/users/{user_id}", USERS + 1 + ThreadLocalRandom.current().nextInt(USERS)))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public RuntimeException notFoundException() {
+        return new NotFoundException("User with id 0 not found");
+    }
+
+    @Benchmark
+    public RuntimeException stackTracedException() {
+        return new RuntimeException("User with id 0 not found");
+    }
+
+    @Benchmark
+    public byte[] serializeRecords() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,53 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.model.User;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class DeleteUserBenchmark {
+    @Param({"10", "10000", "1000000"})
+    public int records;
+
+    @Param({"false", "true"})
+    public boolean compactRecords;
+
+    private PhoneBookStorage storage;
+
+    private long userId;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        storage = new PhoneBookStorage(MutationLog.NONE, compactRecords);
+        userId = storage.createUser("owner", UserServiceBenchmark.phone(0)).getId();
+        for (int i = 0; i < records; i++) {
+            storage.createRecord(userId, "record" + i, UserServiceBenchmark.phone(i));
+        }
+        // the previous store is garbage now, collect it here rather than during the single shot
+        System.gc();
+    }
+
+    @Benchmark
+    public User delete() {
+        return storage.deleteUser(userId);
+    }
+}
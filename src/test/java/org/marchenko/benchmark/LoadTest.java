@@ -0,0 +1,132 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.PhoneBookApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/** Concurrent HTTP creates against a synced log, with blocking and non-blocking writes. */
+public final class LoadTest {
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        // keep a connection per client alive, the default of 5 would reconnect on most requests
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+        for (boolean nonBlocking : new boolean[]{false, true}) {
+            Path directory = Files.createTempDirectory("phonebook-load");
+            ConfigurableApplicationContext application = new SpringApplicationBuilder(PhoneBookApplication.class)
+                    .properties("server.port=0",
+                            "server.tomcat.threads.max=" + threads,
+                            "spring.main.banner-mode=off",
+                            "logging.level.root=WARN",
+                            "phonebook.persistence.enabled=true",
+                            "phonebook.persistence.directory=" + directory,
+                            "phonebook.web.non-blocking-writes=" + nonBlocking)
+                    .run();
+            try {
+                int port = application.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                String base = "http://localhost:" + port + "/users?name=load&phone=";
+                run(base + "1-", clients, seconds);
+                long[] latencies = run(base + "2-", clients, seconds);
+                System.out.printf("%-12s %d clients, %d threads: %,.0f requests/s, p50 %.2f ms, p99 %.2f ms%n",
+                        nonBlocking ? "non-blocking" : "blocking", clients, threads,
+                        (double) latencies.length / seconds,
+                        percentile(latencies, 0.5), percentile(latencies, 0.99));
+            } finally {
+                application.close();
+                delete(directory);
+            }
+        }
+    }
+
+    private static long[] run(String url, int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                String clientUrl = url + String.format("%04d-", i);
+                futures.add(executor.submit(() -> client(clientUrl, deadline)));
+            }
+            List<long[]> all = new ArrayList<>();
+            int total = 0;
+            for (Future<long[]> future : futures) {
+                long[] latencies = future.get();
+                all.add(latencies);
+                total += latencies.length;
+            }
+            long[] merged = new long[total];
+            int position = 0;
+            for (long[] latencies : all) {
+                System.arraycopy(latencies, 0, merged, position, latencies.length);
+                position += latencies.length;
+            }
+            Arrays.sort(merged);
+            return merged;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long[] client(String url, long deadline) throws IOException {
+        long[] latencies = new long[1024];
+        int count = 0;
+        for (int i = 0; ; i++) {
+            long start = System.nanoTime();
+            if (start >= deadline) {
+                return Arrays.copyOf(latencies, count);
+            }
+            HttpURLConnection connection = (HttpURLConnection) new URL(url + i).openConnection();
+            connection.setRequestMethod("POST");
+            int status = connection.getResponseCode();
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                if (body != null) {
+                    while (body.read() >= 0) {
+                        // drained so the connection is reused
+                    }
+                }
+            }
+            if (status != 201) {
+                throw new IllegalStateException("Unexpected status " + status + " for " + url + i);
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - start;
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * percentile))] / 1e6;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
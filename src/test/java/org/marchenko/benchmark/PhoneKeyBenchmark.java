@@ -0,0 +1,72 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.model.PhoneNumber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PhoneKeyBenchmark {
+    @Param({"10000"})
+    public int phones;
+
+    private char[][] queries;
+
+    private final Map<String, Long> byString = new HashMap<>();
+
+    private final Map<Long, Long> byKey = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        queries = new char[phones][];
+        for (int i = 0; i < phones; i++) {
+            String phone = UserServiceBenchmark.phone(i);
+            queries[i] = phone.toCharArray();
+            byString.put(phone, (long) i);
+            byKey.put(PhoneNumber.key(phone), (long) i);
+        }
+    }
+
+    @Benchmark
+    public String copy() {
+        return query();
+    }
+
+    @Benchmark
+    public Long stringLookup() {
+        return byString.get(query());
+    }
+
+    @Benchmark
+    public Long keyLookup() {
+        return byKey.get(PhoneNumber.key(query()));
+    }
+
+    @Benchmark
+    public long parse() {
+        return PhoneNumber.key(query());
+    }
+
+    private String query() {
+        return new String(queries[ThreadLocalRandom.current().nextInt(phones)]);
+    }
+}
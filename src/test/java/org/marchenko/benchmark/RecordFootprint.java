@@ -0,0 +1,50 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.model.User;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+public final class RecordFootprint {
+    private RecordFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int recordsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        for (boolean compact : new boolean[]{false, true}) {
+            long before = usedHeap();
+            PhoneBookStorage storage = fill(compact, users, recordsPerUser);
+            long retained = usedHeap() - before;
+            System.out.printf("%-8s %,d records: %,d bytes, %.1f bytes per record%n",
+                    compact ? "compact" : "tree", (long) users * recordsPerUser, retained,
+                    (double) retained / ((long) users * recordsPerUser));
+            if (storage.userCount() != users) {
+                throw new IllegalStateException("Storage lost users");
+            }
+        }
+    }
+
+    private static PhoneBookStorage fill(boolean compact, int users, int recordsPerUser) {
+        PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE, compact);
+        for (int i = 0; i < users; i++) {
+            User user = storage.createUser("user" + i, UserServiceBenchmark.phone(i));
+            for (int j = 0; j < recordsPerUser; j++) {
+                storage.createRecord(user.getId(), "Contact " + j, UserServiceBenchmark.phone(j));
+            }
+        }
+        return storage;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
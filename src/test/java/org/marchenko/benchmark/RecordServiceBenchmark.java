@@ -0,0 +1,99 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.model.PhoneHolder;
+import org.marchenko.model.Record;
+import org.marchenko.service.RecordService;
+import org.marchenko.service.RecordServiceImpl;
+import org.marchenko.service.UserService;
+import org.marchenko.service.UserServiceImpl;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordServiceBenchmark {
+    @Param({"100"})
+    public int users;
+
+    @Param({"100", "10000"})
+    public int recordsPerUser;
+
+    @Param({"20"})
+    public int pageSize;
+
+    @Param({"false", "true"})
+    public boolean compactRecords;
+
+    private RecordService recordService;
+
+    private final AtomicLong phones = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE, compactRecords);
+        UserService userService = new UserServiceImpl(storage);
+        recordService = new RecordServiceImpl(storage);
+        for (int i = 0; i < users; i++) {
+            Long userId = userService.createUser("user" + i, UserServiceBenchmark.phone(i)).getId();
+            for (int j = 0; j < recordsPerUser; j++) {
+                recordService.createRecord(userId, "record" + j, UserServiceBenchmark.phone(j));
+            }
+        }
+        phones.set(recordsPerUser);
+    }
+
+    @Benchmark
+    public Record create() {
+        return recordService.createRecord(randomUser(), "created", UserServiceBenchmark.phone(phones.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Record findById() {
+        long userId = randomUser();
+        long recordId = (userId - 1) * recordsPerUser + 1 + ThreadLocalRandom.current().nextInt(recordsPerUser);
+        return recordService.findRecordById(userId, recordId);
+    }
+
+    @Benchmark
+    public Record findByPhone() {
+        return recordService.findRecordByPhone(randomUser(),
+                UserServiceBenchmark.phone(ThreadLocalRandom.current().nextInt(recordsPerUser)));
+    }
+
+    @Benchmark
+    public List<PhoneHolder> findPhoneHolders() {
+        return recordService.findPhoneHolders(
+                UserServiceBenchmark.phone(ThreadLocalRandom.current().nextInt(recordsPerUser)), 0L, pageSize);
+    }
+
+    @Benchmark
+    public List<Record> pageByOffset() {
+        return recordService.findAllRecords(randomUser(),
+                ThreadLocalRandom.current().nextInt(Math.max(1, recordsPerUser / pageSize)), pageSize);
+    }
+
+    private long randomUser() {
+        return 1L + ThreadLocalRandom.current().nextInt(users);
+    }
+}
@@ -0,0 +1,79 @@
+package org.marchenko.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.marchenko.model.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseFormatBenchmark {
+    @Param({"20", "1000"})
+    public int pageSize;
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    private ObjectMapper mapper;
+
+    private List<Record> page;
+
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1 << 20);
+
+    @Setup(Level.Trial)
+    public void prepare() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (format.equals("smile")) {
+            builder.factory(new SmileFactory());
+        } else if (format.equals("cbor")) {
+            builder.factory(new CBORFactory());
+        }
+        mapper = builder.build();
+        page = new ArrayList<>(pageSize);
+        long version = System.currentTimeMillis() << 20;
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new Record(1_000_000L + i, "Contact " + i, UserServiceBenchmark.phone(i), version + i));
+        }
+        System.out.printf("%n%s%s, %d records: %,d bytes%n", format, gzip ? " gzip" : "", pageSize, write());
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        return write();
+    }
+
+    private int write() throws IOException {
+        body.reset();
+        OutputStream out = gzip ? new GZIPOutputStream(body, 8192) : body;
+        mapper.writeValue(out, page);
+        return body.size();
+    }
+}
@@ -0,0 +1,93 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.model.User;
+import org.marchenko.storage.Persistence;
+import org.marchenko.storage.PhoneBookStorage;
+import org.marchenko.storage.ShardLogs;
+import org.marchenko.storage.WriteAheadLog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SnapshotLoadBenchmark {
+    private static final int RECORDS_PER_USER = 100;
+
+    @Param({"100000", "1000000"})
+    public int records;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void writeSnapshot() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, false);
+        PhoneBookStorage storage = new PhoneBookStorage(writeAheadLog);
+        Persistence persistence = new Persistence(storage, ShardLogs.of(writeAheadLog), 3600, true);
+        persistence.recover();
+        for (int i = 0; i < records / RECORDS_PER_USER; i++) {
+            User user = storage.createUser("user" + i, "+1" + i);
+            for (int j = 0; j < RECORDS_PER_USER; j++) {
+                storage.createRecord(user.getId(), "record" + j, "+7" + j);
+            }
+        }
+        persistence.shutdown();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteSnapshot() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Object eager(Restart restart) throws IOException {
+        return restart.start(directory, false);
+    }
+
+    @Benchmark
+    public Object lazy(Restart restart) throws IOException {
+        return restart.start(directory, true);
+    }
+
+    @State(Scope.Thread)
+    public static class Restart {
+        private Persistence persistence;
+
+        Object start(Path directory, boolean lazyLoad) throws IOException {
+            WriteAheadLog writeAheadLog = new WriteAheadLog(directory, false);
+            PhoneBookStorage storage = new PhoneBookStorage(writeAheadLog);
+            persistence = new Persistence(storage, ShardLogs.of(writeAheadLog), 3600, lazyLoad);
+            persistence.recover();
+            return storage.findRecordByPhone(1L, "+70");
+        }
+
+        @TearDown(Level.Invocation)
+        public void stop() {
+            persistence.shutdown();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.marchenko.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.marchenko.controller.ErrorHandler;
+import org.marchenko.controller.RecordController;
+import org.marchenko.service.RecordService;
+import org.marchenko.service.RecordServiceImpl;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+    @Param({"100000"})
+    public int records;
+
+    @Param({"text/csv", "application/x-phonebook-records"})
+    public String format;
+
+    private MockMvc exporter;
+
+    private byte[] exported;
+
+    @Setup(Level.Trial)
+    public void fill() throws Exception {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE);
+        Long userId = storage.createUser("user", UserServiceBenchmark.phone(0)).getId();
+        for (int i = 0; i < records; i++) {
+            storage.createRecord(userId, "Contact " + i, UserServiceBenchmark.phone(i));
+        }
+        exporter = mockMvc(storage);
+        exported = export();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EmptyStorage {
+        MockMvc mockMvc;
+
+        @Setup(Level.Invocation)
+        public void create() {
+            PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE);
+            storage.createUser("user", UserServiceBenchmark.phone(0));
+            mockMvc = mockMvc(storage);
+        }
+    }
+
+    @Benchmark
+    public int exportRecords(Bytes bytes) throws Exception {
+        int length = export().length;
+        bytes.bytes += length;
+        return length;
+    }
+
+    @Benchmark
+    public int importRecords(EmptyStorage target, Bytes bytes) throws Exception {
+        int status = target.mockMvc.perform(post("/users/1/records/import").contentType(format).content(exported))
+                .andReturn().getResponse().getStatus();
+        bytes.bytes += exported.length;
+        return status;
+    }
+
+    private byte[] export() throws Exception {
+        MvcResult result = exporter.perform(get("/users/1/records/export").accept(format)).andReturn();
+        return exporter.perform(asyncDispatch(result)).andReturn().getResponse().getContentAsByteArray();
+    }
+
+    private static MockMvc mockMvc(PhoneBookStorage storage) {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        RecordService recordService = new RecordServiceImpl(storage);
+        return MockMvcBuilders.standaloneSetup(new RecordController(recordService, mapper))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(mapper))
+                .setControllerAdvice(new ErrorHandler())
+                .build();
+    }
+}
@@ -0,0 +1,91 @@
+package org.marchenko.benchmark;
+
+import org.marchenko.model.User;
+import org.marchenko.service.UserService;
+import org.marchenko.service.UserServiceImpl;
+import org.marchenko.storage.PhoneBookStorage;
+import org.marchenko.storage.ShardLogs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserServiceBenchmark {
+    static final String[] NAMES = {"Anna", "Boris", "Clara", "Dmitry", "Elena", "Fedor", "Galina", "Igor"};
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    @Param({"20"})
+    public int pageSize;
+
+    @Param({"1", "4"})
+    public int shards;
+
+    private UserService userService;
+
+    private final AtomicLong phones = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void fill() {
+        userService = new UserServiceImpl(new PhoneBookStorage(ShardLogs.none(shards), false));
+        for (int i = 0; i < users; i++) {
+            userService.createUser(NAMES[i % NAMES.length] + " " + i, phone(i));
+        }
+        phones.set(users);
+    }
+
+    @Benchmark
+    public User create() {
+        long i = phones.getAndIncrement();
+        return userService.createUser("Created " + i, phone(i));
+    }
+
+    @Benchmark
+    public User findById() {
+        return userService.findUserById(1L + ThreadLocalRandom.current().nextInt(users));
+    }
+
+    @Benchmark
+    public List<User> findByName() {
+        return userService.findUsersByName(NAMES[ThreadLocalRandom.current().nextInt(NAMES.length)], 0, pageSize);
+    }
+
+    @Benchmark
+    public List<User> findByNameFragment() {
+        return userService.findUsersByName("ri", 0, pageSize);
+    }
+
+    @Benchmark
+    public List<User> pageByOffset() {
+        return userService.findAllUsers(ThreadLocalRandom.current().nextInt(users / pageSize), pageSize);
+    }
+
+    @Benchmark
+    public List<User> pageByCursor() {
+        return userService.findUsersAfter((long) ThreadLocalRandom.current().nextInt(users), pageSize);
+    }
+
+    static String phone(long i) {
+        return "+1" + (1_000_000_000L + i);
+    }
+}
@@ -0,0 +1,50 @@
+package org.marchenko.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class MetricsTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void timesRequestsAndServiceCallsByOutcome() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/users")
+                .param("name", "metered")
+                .param("phone", "+1 206 000 0001"))
+                .andExpect(MockMvcResultMatchers.status().isCreated());
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", Long.MAX_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
+
+        Timer missing = registry.find("http.server.requests")
+                .tags("uri", "/users/{user_id}", "status", "404", "exception", "NotFoundException")
+                .timer();
+        assertNotNull(missing);
+        assertEquals(1, missing.count());
+
+        Timer lookups = registry.find("phonebook.service")
+                .tags("method", "findUserById", "exception", "NotFoundException")
+                .timer();
+        assertNotNull(lookups);
+        assertTrue(registry.get("phonebook.users").gauge().value() >= 1);
+    }
+}
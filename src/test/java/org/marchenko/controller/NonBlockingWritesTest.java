@@ -0,0 +1,96 @@
+package org.marchenko.controller;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcMetricsFilter;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.servlet.ServletContextInitializer;
+import org.springframework.boot.web.servlet.ServletContextInitializerBeans;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@SpringBootTest(properties = {
+        "phonebook.persistence.enabled=true",
+        "phonebook.web.non-blocking-writes=true"})
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+@DirtiesContext
+public class NonBlockingWritesTest {
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    @DynamicPropertySource
+    static void persistenceDirectory(DynamicPropertyRegistry registry) {
+        registry.add("phonebook.persistence.directory", () -> folder.getRoot().getAbsolutePath());
+    }
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Test
+    public void answersWritesOnceTheLogIsSynced() throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/users")
+                .param("name", "deferred")
+                .param("phone", "+1 207 000 0001"))
+                .andReturn();
+        assertNotNull(created.getRequest().getAsyncContext());
+        MockHttpServletResponse response = awaitCompletion(created);
+        assertEquals(201, response.getStatus());
+        assertThat(response.getContentAsString(), containsString("\"name\":\"deferred\""));
+
+        mvc.perform(MockMvcRequestBuilders.get("/users").param("name", "deferred"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("deferred"));
+    }
+
+    @Test
+    public void failedWritesAreAnsweredRightAway() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/users").param("name", "no phone"))
+                .andExpect(MockMvcResultMatchers.request().asyncNotStarted())
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    public void wrapsTheRequestTimer() {
+        List<Class<?>> filters = new ArrayList<>();
+        for (ServletContextInitializer initializer : new ServletContextInitializerBeans(context.getBeanFactory())) {
+            if (initializer instanceof FilterRegistrationBean) {
+                filters.add(((FilterRegistrationBean<?>) initializer).getFilter().getClass());
+            }
+        }
+        assertThat(filters.indexOf(DeferredDurabilityFilter.class), lessThan(filters.indexOf(WebMvcMetricsFilter.class)));
+    }
+
+    private static MockHttpServletResponse awaitCompletion(MvcResult result) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (result.getRequest().isAsyncStarted() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        return result.getResponse();
+    }
+}
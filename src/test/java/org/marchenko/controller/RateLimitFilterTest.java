@@ -0,0 +1,112 @@
+package org.marchenko.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+@SpringBootTest(properties = {
+        "phonebook.web.rate-limit.enabled=true",
+        "phonebook.web.rate-limit.client-header=X-Client",
+        "phonebook.web.rate-limit.search.rate=1",
+        "phonebook.web.rate-limit.search.burst=2",
+        "phonebook.web.rate-limit.write.rate=0",
+        "phonebook.web.rate-limit.write.concurrency=1"})
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class RateLimitFilterTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private RateLimitFilter filter;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    @Test
+    public void throttlesNameSearchesPerClient() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/users").param("name", "ann").header("X-Client", "polite"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        for (int i = 0; i < 2; i++) {
+            mvc.perform(MockMvcRequestBuilders.get("/users").param("name", "ann").header("X-Client", "greedy"))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
+        }
+        mvc.perform(MockMvcRequestBuilders.get("/users").param("name", "ann").header("X-Client", "greedy"))
+                .andExpect(MockMvcResultMatchers.status().isTooManyRequests())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.status").value(429));
+
+        mvc.perform(MockMvcRequestBuilders.get("/users").param("name", "ann").header("X-Client", "polite"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/users").header("X-Client", "greedy"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        assertEquals(1, registry.get(RateLimitFilter.REJECTED)
+                .tags("endpoint", "search", "reason", "rate").counter().count(), 0);
+    }
+
+    @Test
+    public void shedsWritesBeyondTheConcurrencyLimit() throws Exception {
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        filter.doFilter(write(), new MockHttpServletResponse(), (request, response) -> {
+            MockHttpServletResponse shed = new MockHttpServletResponse();
+            filter.doFilter(write(), shed, (ignored, alsoIgnored) -> {
+                throw new AssertionError("Second write must not reach the chain");
+            });
+            nested.set(shed);
+        });
+
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("1", nested.get().getHeader("Retry-After"));
+        assertEquals(1, registry.get(RateLimitFilter.REJECTED)
+                .tags("endpoint", "write", "reason", "concurrency").counter().count(), 0);
+
+        MockHttpServletResponse after = new MockHttpServletResponse();
+        filter.doFilter(write(), after, (request, response) -> {
+        });
+        assertEquals(200, after.getStatus());
+    }
+
+    @Test
+    public void foldsClientsPastTheCapIntoOneBucket() throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("phonebook.web.rate-limit.read.rate", "1")
+                .withProperty("phonebook.web.rate-limit.read.burst", "2");
+        RateLimitFilter capped = new RateLimitFilter(
+                environment, new SimpleMeterRegistry(), new ObjectMapper(), "X-Client", 2);
+
+        for (String client : new String[]{"first", "second", "third", "fourth"}) {
+            assertEquals(200, read(capped, client));
+        }
+        assertEquals(429, read(capped, "fifth"));
+        assertEquals(200, read(capped, "first"));
+    }
+
+    private static int read(RateLimitFilter filter, String client) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader("X-Client", client);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (ignored, alsoIgnored) -> {
+        });
+        return response.getStatus();
+    }
+
+    private static MockHttpServletRequest write() {
+        return new MockHttpServletRequest("POST", "/users");
+    }
+}
@@ -4,8 +4,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.marchenko.exception.BadRequest;
 import org.marchenko.exception.CreateException;
+import org.marchenko.exception.Gone;
 import org.marchenko.exception.NotFoundException;
+import org.marchenko.exception.PreconditionFailed;
+import org.marchenko.model.Operation;
+import org.marchenko.model.OperationResult;
+import org.marchenko.model.PhoneHolder;
 import org.marchenko.model.Record;
+import org.marchenko.model.RecordChange;
+import org.marchenko.model.RecordChanges;
 import org.marchenko.model.User;
 import org.marchenko.service.RecordService;
 import org.mockito.Mockito;
@@ -13,16 +20,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -57,6 +71,102 @@ public class RecordControllerTest {
         Mockito.verify(recordService).findAllRecords(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyInt());
     }
 
+    @Test
+    public void getRecordsAfterCursor() throws Exception {
+        User user = new User(1L, "user", "phone");
+
+        List<Record> records = Arrays.asList(
+                new Record(5L, "name5", "phone5"),
+                new Record(9L, "name9", "phone9")
+        );
+
+        Mockito.when(recordService.findRecordsAfter(user.getId(), 4L, 2)).thenReturn(records);
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records", user.getId())
+                .param("after", "4")
+                .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor", "9"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id", contains(5, 9)));
+
+        Mockito.verify(recordService).findRecordsAfter(user.getId(), 4L, 2);
+        Mockito.verify(recordService, Mockito.never()).findAllRecords(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void getPhoneHoldersAcrossUsers() throws Exception {
+        Mockito.when(recordService.findPhoneHolders("+1 555 000 0001", 4L, 2))
+                .thenReturn(Arrays.asList(new PhoneHolder(1L, 5L), new PhoneHolder(3L, 9L)));
+
+        mvc.perform(MockMvcRequestBuilders.get("/records/by_phone")
+                .param("phone", "+1 555 000 0001")
+                .param("after", "4")
+                .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor", "9"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].userId", contains(1, 3)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].recordId", contains(5, 9)));
+    }
+
+    @Test
+    public void streamRecordsAsNdjsonInChunks() throws Exception {
+        User user = new User(1L, "user", "phone");
+
+        List<Record> firstChunk = new ArrayList<>();
+        for (long id = 1; id <= 512; id++) {
+            firstChunk.add(new Record(id, "name" + id, "phone" + id));
+        }
+        List<Record> lastChunk = Arrays.asList(new Record(600L, "name600", "phone600"));
+
+        Mockito.when(recordService.findRecordsAfter(user.getId(), Long.MIN_VALUE, 512)).thenReturn(firstChunk);
+        Mockito.when(recordService.findRecordsAfter(user.getId(), 512L, 488)).thenReturn(lastChunk);
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records", user.getId())
+                .accept("application/x-ndjson")
+                .param("pageSize", "1000"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(513, lines.length);
+        assertEquals("{\"id\":600,\"name\":\"name600\",\"phone\":\"phone600\",\"version\":0}", lines[512]);
+
+        Mockito.verify(recordService, Mockito.never()).findAllRecords(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void applyOperationsReportsEachOutcome() throws Exception {
+        User user = new User(1L, "user", "phone");
+
+        List<OperationResult<Record>> results = Arrays.asList(
+                OperationResult.ok(HttpStatus.CREATED, new Record(1L, "name1", "phone1")),
+                OperationResult.failed(new CreateException("duplicate")),
+                OperationResult.failed(new NotFoundException("missing"))
+        );
+
+        Mockito.when(recordService.applyOperations(Mockito.eq(user.getId()), Mockito.anyList())).thenReturn(results);
+
+        mvc.perform(MockMvcRequestBuilders.post("/users/{user_id}/records/batch", user.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"type\":\"CREATE\",\"name\":\"name1\",\"phone\":\"phone1\"}," +
+                        "{\"type\":\"CREATE\",\"name\":\"name1\",\"phone\":\"phone1\"}," +
+                        "{\"type\":\"DELETE\",\"id\":42}]"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].status", contains(201, 400, 404)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].value.phone").value("phone1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].error").value("duplicate"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[2].value").doesNotExist());
+
+        Mockito.verify(recordService).applyOperations(Mockito.eq(user.getId()), Mockito.argThat(operations ->
+                operations.size() == 3 && operations.get(2).getType() == Operation.Type.DELETE
+                        && operations.get(2).getId() == 42L));
+    }
+
     @Test
     public void createRecordWhenRecordNotExist() throws Exception {
         User user = new User(1L, "user", "phone");
@@ -233,6 +343,68 @@ public class RecordControllerTest {
         Mockito.verify(recordService).updateRecord(user.getId(), record.getId(), record.getName(), record.getPhone());
     }
 
+    @Test
+    public void getRecordsAnswersNotModifiedWithoutReadingRecords() throws Exception {
+        User user = new User(1L, "user", "phone");
+
+        Mockito.when(recordService.recordsVersion(user.getId())).thenReturn(42L);
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records", user.getId())
+                .header("If-None-Match", "W/\"42\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "W/\"42\""))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        Mockito.verify(recordService, Mockito.never()).findAllRecords(Mockito.anyLong(), Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void getRecordsSendsETagWhenChanged() throws Exception {
+        User user = new User(1L, "user", "phone");
+        List<Record> records = Arrays.asList(new Record(1L, "name1", "phone1", 43L));
+
+        Mockito.when(recordService.recordsVersion(user.getId())).thenReturn(43L);
+        Mockito.when(recordService.findAllRecords(user.getId(), 0, 3)).thenReturn(records);
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records", user.getId())
+                .header("If-None-Match", "\"42\""))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "W/\"43\""))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].version").value(43));
+    }
+
+    @Test
+    public void updateRecordWithIfMatch() throws Exception {
+        User user = new User(1L, "user", "phone");
+        Record record = new Record(1L, "renamed", "phone1", 8L);
+
+        Mockito.when(recordService.updateRecord(user.getId(), record.getId(), "renamed", null, 7L)).thenReturn(record);
+
+        mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}/records/{record_id}", user.getId(), record.getId())
+                .header("If-Match", "\"7\"")
+                .param("name", "renamed"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"8\""));
+    }
+
+    @Test
+    public void updateRecordWithStaleIfMatch() throws Exception {
+        User user = new User(1L, "user", "phone");
+
+        Mockito.when(recordService.updateRecord(user.getId(), 1L, "renamed", null, 7L))
+                .thenThrow(PreconditionFailed.class);
+
+        mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}/records/{record_id}", user.getId(), 1L)
+                .header("If-Match", "\"7\"")
+                .param("name", "renamed"))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+
+        mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}/records/{record_id}", user.getId(), 1L)
+                .header("If-Match", "W/\"7\"")
+                .param("name", "renamed"))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
     @Test
     public void findRecordByPhone() throws Exception {
         User user = new User(1L, "user", "phone");
@@ -251,4 +423,103 @@ public class RecordControllerTest {
         Mockito.verify(recordService).findRecordByPhone(user.getId(), record.getPhone());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void getChangesAnswersAtOnceWhenChangesArePending() throws Exception {
+        Record record = new Record(3L, "name3", "phone3", 12);
+        Mockito.when(recordService.findChanges(1L, 10L, 1000)).thenReturn(new RecordChanges(12,
+                Collections.singletonList(new RecordChange(12, Operation.Type.CREATE, 3L, record))));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records/changes", 1L)
+                .param("since", "10")
+                .param("wait", "30"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("sequence").value(12))
+                .andExpect(MockMvcResultMatchers.jsonPath("changes[0].type").value("CREATE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("changes[0].record.name").value("name3"));
+
+        Mockito.verify(recordService, Mockito.never()).awaitChange(Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    public void getChangesWaitsForTheNextChange() throws Exception {
+        CompletableFuture<Void> changed = new CompletableFuture<>();
+        Mockito.when(recordService.findChanges(1L, 10L, 1000))
+                .thenReturn(new RecordChanges(10, Collections.emptyList()))
+                .thenReturn(new RecordChanges(11, Collections.singletonList(
+                        new RecordChange(11, Operation.Type.DELETE, 3L, null))));
+        Mockito.when(recordService.awaitChange(1L, 10L)).thenReturn(changed);
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records/changes", 1L)
+                .param("since", "10")
+                .param("wait", "30"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        changed.complete(null);
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("sequence").value(11))
+                .andExpect(MockMvcResultMatchers.jsonPath("changes[0].type").value("DELETE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("changes[0].record").doesNotExist());
+    }
+
+    @Test
+    public void getChangesAfterDroppedHistoryIsGone() throws Exception {
+        Mockito.when(recordService.findChanges(1L, 10L, 1000)).thenThrow(new Gone("dropped"));
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records/changes", 1L)
+                .param("since", "10"))
+                .andExpect(MockMvcResultMatchers.status().isGone())
+                .andExpect(MockMvcResultMatchers.jsonPath("message").value("dropped"));
+    }
+
+    @Test
+    public void exportRecordsAsCsv() throws Exception {
+        Mockito.when(recordService.findRecordsAfter(1L, Long.MIN_VALUE, 512)).thenReturn(Arrays.asList(
+                new Record(1L, "name1", "phone1"),
+                new Record(2L, "name, 2", "phone2")));
+
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records/export", 1L)
+                .accept("text/csv"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(MockMvcResultMatchers.content().string(
+                        "id,name,phone\r\n1,name1,phone1\r\n2,\"name, 2\",phone2\r\n"));
+    }
+
+    @Test
+    public void importRecordsInBatches() throws Exception {
+        StringBuilder csv = new StringBuilder("name,phone\n");
+        for (int i = 0; i < 1001; i++) {
+            csv.append("name").append(i).append(",phone").append(i).append('\n');
+        }
+        List<OperationResult<Record>> firstBatch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            firstBatch.add(i == 7
+                    ? OperationResult.failed(new CreateException("duplicate"))
+                    : OperationResult.ok(HttpStatus.CREATED, new Record((long) i, "name" + i, "phone" + i)));
+        }
+        Mockito.when(recordService.applyOperations(Mockito.eq(1L), Mockito.anyList()))
+                .thenReturn(firstBatch)
+                .thenReturn(Collections.singletonList(OperationResult.ok(HttpStatus.CREATED, new Record(1000L, "name1000", "phone1000"))));
+
+        mvc.perform(MockMvcRequestBuilders.post("/users/{user_id}/records/import", 1L)
+                .contentType("text/csv")
+                .content(csv.toString()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("created").value(1000))
+                .andExpect(MockMvcResultMatchers.jsonPath("failed").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("failures[0].entry").value(8))
+                .andExpect(MockMvcResultMatchers.jsonPath("failures[0].status").value(400))
+                .andExpect(MockMvcResultMatchers.jsonPath("failures[0].error").value("duplicate"));
+
+        Mockito.verify(recordService, Mockito.times(2)).applyOperations(Mockito.eq(1L), Mockito.anyList());
+    }
+
+}
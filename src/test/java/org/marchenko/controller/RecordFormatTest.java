@@ -0,0 +1,123 @@
+package org.marchenko.controller;
+
+import org.junit.Test;
+import org.marchenko.exception.BadRequest;
+import org.marchenko.model.Operation;
+import org.marchenko.model.Record;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class RecordFormatTest {
+    private static final List<Record> RECORDS = Arrays.asList(
+            new Record(1L, "Ann", "+7 900"),
+            new Record(300L, "Smith, \"Bob\"", "1"),
+            new Record(Long.MAX_VALUE, "Два\r\nлинии", "+44"));
+
+    @Test
+    public void csvRoundTrips() throws IOException {
+        byte[] encoded = encode(CsvRecordFormat.INSTANCE);
+        assertEquals("id,name,phone\r\n1,Ann,+7 900\r\n300,\"Smith, \"\"Bob\"\"\",1\r\n"
+                        + Long.MAX_VALUE + ",\"Два\r\nлинии\",+44\r\n",
+                new String(encoded, StandardCharsets.UTF_8));
+        assertEquals(RECORDS, decode(CsvRecordFormat.INSTANCE, encoded));
+    }
+
+    @Test
+    public void binaryRoundTrips() throws IOException {
+        assertEquals(RECORDS, decode(BinaryRecordFormat.INSTANCE, encode(BinaryRecordFormat.INSTANCE)));
+    }
+
+    @Test
+    public void csvFindsColumnsByHeader() throws IOException {
+        List<Operation> operations = decodeOperations(CsvRecordFormat.INSTANCE,
+                "Phone,Note,Name\n555,x,Ann\n\n556\r\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(2, operations.size());
+        assertEquals("Ann", operations.get(0).getName());
+        assertEquals("555", operations.get(0).getPhone());
+        assertEquals(null, operations.get(1).getName());
+        assertEquals(Operation.Type.CREATE, operations.get(1).getType());
+    }
+
+    @Test
+    public void rejectsMalformedInput() throws IOException {
+        expectBadRequest(CsvRecordFormat.INSTANCE, "id,phone\n1,2\n");
+        expectBadRequest(CsvRecordFormat.INSTANCE, "name,phone\n\"Ann,1\n");
+        expectBadRequest(BinaryRecordFormat.INSTANCE, "name,phone\n");
+        byte[] encoded = encode(BinaryRecordFormat.INSTANCE);
+        expectBadRequest(BinaryRecordFormat.INSTANCE, Arrays.copyOf(encoded, encoded.length - 1));
+    }
+
+    @Test
+    public void rejectsNegativeAndOverlongBinaryLengths() throws IOException {
+        byte[] magic = "PBR1".getBytes(StandardCharsets.US_ASCII);
+        byte[] negative = {1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1};
+        byte[] overlong = {1, -128, -128, -128, -128, -128, -128, -128, -128, -128, -128, 0};
+        byte[] truncated = {1, -128, -128};
+        for (byte[] record : new byte[][]{negative, overlong, truncated}) {
+            byte[] input = Arrays.copyOf(magic, magic.length + record.length);
+            System.arraycopy(record, 0, input, magic.length, record.length);
+            expectBadRequest(BinaryRecordFormat.INSTANCE, input);
+        }
+    }
+
+    @Test
+    public void choosesFormatByMediaType() {
+        assertSame(CsvRecordFormat.INSTANCE, RecordFormat.accepted(new ArrayList<>()));
+        assertSame(CsvRecordFormat.INSTANCE, RecordFormat.accepted(MediaType.parseMediaTypes("*/*")));
+        assertSame(BinaryRecordFormat.INSTANCE, RecordFormat.accepted(
+                MediaType.parseMediaTypes("text/csv;q=0.5, application/x-phonebook-records")));
+        assertSame(BinaryRecordFormat.INSTANCE, RecordFormat.of(BinaryRecordFormat.MEDIA_TYPE));
+        assertSame(CsvRecordFormat.INSTANCE, RecordFormat.of(MediaType.parseMediaType("text/csv;charset=UTF-8")));
+    }
+
+    private static byte[] encode(RecordFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RecordFormat.Encoder encoder = format.encoder(out);
+        for (Record record : RECORDS) {
+            encoder.write(record);
+        }
+        encoder.flush();
+        return out.toByteArray();
+    }
+
+    private static List<Record> decode(RecordFormat format, byte[] encoded) throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (Operation operation : decodeOperations(format, encoded)) {
+            records.add(new Record(RECORDS.get(records.size()).getId(), operation.getName(), operation.getPhone()));
+        }
+        return records;
+    }
+
+    private static List<Operation> decodeOperations(RecordFormat format, byte[] encoded) throws IOException {
+        RecordFormat.Decoder decoder = format.decoder(new ByteArrayInputStream(encoded));
+        List<Operation> operations = new ArrayList<>();
+        for (Operation operation = decoder.next(); operation != null; operation = decoder.next()) {
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private static void expectBadRequest(RecordFormat format, String input) throws IOException {
+        expectBadRequest(format, input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void expectBadRequest(RecordFormat format, byte[] input) throws IOException {
+        try {
+            decodeOperations(format, input);
+            fail("BadRequest expected");
+        } catch (BadRequest expected) {
+            // malformed
+        }
+    }
+}
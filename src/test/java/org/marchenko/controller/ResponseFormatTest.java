@@ -0,0 +1,111 @@
+package org.marchenko.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.marchenko.model.User;
+import org.marchenko.service.RecordService;
+import org.marchenko.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class ResponseFormatTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RecordService recordService;
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    public void negotiatesSmileAndCbor() throws Exception {
+        Long userId = userWithRecords("+1 208 000 0001", 3);
+        JsonNode expected = new ObjectMapper().readTree(mvc.perform(
+                MockMvcRequestBuilders.get("/users/{user_id}/records", userId).param("pageSize", "10"))
+                .andReturn().getResponse().getContentAsByteArray());
+
+        for (ObjectMapper mapper : new ObjectMapper[]{
+                new ObjectMapper(new SmileFactory()), new ObjectMapper(new CBORFactory())}) {
+            String type = mapper.getFactory() instanceof SmileFactory ? "application/x-jackson-smile" : "application/cbor";
+            byte[] body = mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}/records", userId)
+                    .param("pageSize", "10")
+                    .header("Accept", type))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.content().contentType(type))
+                    .andReturn().getResponse().getContentAsByteArray();
+            assertEquals(expected, mapper.readTree(body));
+        }
+    }
+
+    @Test
+    public void gzipsLargePages() throws Exception {
+        Long userId = userWithRecords("+1 208 000 0002", 200);
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(
+                "http://localhost:" + port + "/users/" + userId + "/records?pageSize=200").openConnection();
+        connection.setRequestProperty("Accept", "application/cbor");
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, connection.getResponseCode());
+        assertEquals("gzip", connection.getHeaderField("Content-Encoding"));
+        assertTrue(connection.getHeaderField("ETag").startsWith("W/"));
+        try (InputStream body = new GZIPInputStream(connection.getInputStream())) {
+            assertEquals(200, new ObjectMapper(new CBORFactory()).readTree(body).size());
+        }
+    }
+
+    @Test
+    public void tagsEachRenderingOfAUser() throws Exception {
+        User user = userService.createUser("tagged", "+1 208 000 0003");
+        String version = String.valueOf(user.getVersion());
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", user.getId()))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"" + version + "\""))
+                .andExpect(MockMvcResultMatchers.header().string("Vary", Matchers.containsString("Accept")));
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", user.getId())
+                .header("Accept", "application/cbor"))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"" + version + "-cbor\""));
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", user.getId())
+                .header("Accept", "application/x-jackson-smile")
+                .header("If-None-Match", "\"" + version + "\""))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}", user.getId())
+                .header("Accept", "application/x-jackson-smile")
+                .header("If-Match", "\"" + version + "-cbor\"")
+                .param("name", "retagged"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+
+    private Long userWithRecords(String phone, int records) {
+        User user = userService.createUser("formats", phone);
+        for (int i = 0; i < records; i++) {
+            recordService.createRecord(user.getId(), "Contact " + i, String.format("+1 209 000 %04d", i));
+        }
+        return user.getId();
+    }
+}
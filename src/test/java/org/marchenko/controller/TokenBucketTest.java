@@ -0,0 +1,38 @@
+package org.marchenko.controller;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketTest {
+    private static final long INTERVAL = 100;
+
+    @Test
+    public void allowsTheBurstThenRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(1_000);
+        long tolerance = 2 * INTERVAL;
+
+        assertEquals(0, bucket.tryTake(1_000, INTERVAL, tolerance));
+        assertEquals(0, bucket.tryTake(1_000, INTERVAL, tolerance));
+        assertEquals(0, bucket.tryTake(1_000, INTERVAL, tolerance));
+        assertEquals(INTERVAL, bucket.tryTake(1_000, INTERVAL, tolerance));
+        assertEquals(40, bucket.tryTake(1_060, INTERVAL, tolerance));
+
+        assertEquals(0, bucket.tryTake(1_100, INTERVAL, tolerance));
+        assertEquals(INTERVAL, bucket.tryTake(1_100, INTERVAL, tolerance));
+        assertFalse(bucket.isFull(1_100));
+    }
+
+    @Test
+    public void idleTimeDoesNotBankMoreThanTheBurst() {
+        TokenBucket bucket = new TokenBucket(0);
+        long later = 1_000_000;
+
+        assertTrue(bucket.isFull(later));
+        assertEquals(0, bucket.tryTake(later, INTERVAL, INTERVAL));
+        assertEquals(0, bucket.tryTake(later, INTERVAL, INTERVAL));
+        assertEquals(INTERVAL, bucket.tryTake(later, INTERVAL, INTERVAL));
+    }
+}
@@ -0,0 +1,188 @@
+package org.marchenko.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+
+@SpringBootTest
+@RunWith(SpringRunner.class)
+@AutoConfigureMockMvc
+public class UserControllerConcurrencyTest {
+    private static final int THREADS = 16;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Test
+    public void concurrentCreateNeverRepeatsIds() throws Exception {
+        int perThread = 200;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) {
+                JsonNode user = createUser("user-" + thread + "-" + i, String.format("+1 201 %03d %04d", thread, i));
+                ids.add(user.get("id").asLong());
+            }
+        });
+
+        assertEquals(THREADS * perThread, ids.size());
+    }
+
+    @Test
+    public void concurrentPatchesOfDifferentFieldsAreNotLost() throws Exception {
+        int rounds = 200;
+        long id = createUser("patched", "+1 202 000 0000").get("id").asLong();
+
+        for (int round = 0; round < rounds; round++) {
+            String name = "name-" + round;
+            String phone = "+1 202 100 " + round;
+            runConcurrently(thread -> {
+                if (thread % 2 == 0) {
+                    mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}", id).param("name", name))
+                            .andExpect(MockMvcResultMatchers.status().isOk());
+                } else {
+                    mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}", id).param("phone", phone))
+                            .andExpect(MockMvcResultMatchers.status().isOk());
+                }
+            });
+
+            mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", id))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("name").value(name))
+                    .andExpect(MockMvcResultMatchers.jsonPath("phone").value(phone));
+        }
+    }
+
+    @Test
+    public void concurrentCreateWithSamePhoneCreatesOneUser() throws Exception {
+        List<Integer> created = new ArrayList<>();
+
+        runConcurrently(thread -> {
+            int status = mvc.perform(MockMvcRequestBuilders.post("/users")
+                    .param("name", "same-" + thread)
+                    .param("phone", "+1 203 000 0000"))
+                    .andReturn().getResponse().getStatus();
+            if (status == 201) {
+                synchronized (created) {
+                    created.add(thread);
+                }
+            }
+        });
+
+        assertEquals(1, created.size());
+    }
+
+    @Test
+    public void concurrentPatchesWithSameIfMatchHaveOneWinner() throws Exception {
+        long id = createUser("conditional", "+1 204 000 0000").get("id").asLong();
+        String etag = mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", id))
+                .andReturn().getResponse().getHeader("ETag");
+        List<Integer> updated = new ArrayList<>();
+
+        runConcurrently(thread -> {
+            int status = mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}", id)
+                    .header("If-Match", etag)
+                    .param("name", "winner-" + thread))
+                    .andReturn().getResponse().getStatus();
+            if (status == 200) {
+                synchronized (updated) {
+                    updated.add(thread);
+                }
+            } else {
+                assertEquals(412, status);
+            }
+        });
+
+        assertEquals(1, updated.size());
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", id).header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("name").value("winner-" + updated.get(0)));
+    }
+
+    @Test
+    public void searchSeesOnlyLatestNamesAfterConcurrentRenames() throws Exception {
+        long[] ids = new long[THREADS];
+        for (int thread = 0; thread < THREADS; thread++) {
+            ids[thread] = createUser("Before" + thread + "Rename", "+1 205 000 " + thread).get("id").asLong();
+        }
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 50; i++) {
+                mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}", ids[thread])
+                        .param("name", "Round" + i + "Renamed" + thread + "Zz"))
+                        .andExpect(MockMvcResultMatchers.status().isOk());
+            }
+        });
+
+        for (int thread = 0; thread < THREADS; thread++) {
+            mvc.perform(MockMvcRequestBuilders.get("/users")
+                    .param("name", "round49renamed" + thread + "zz"))
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$[*].id", contains((int) ids[thread])));
+        }
+        mvc.perform(MockMvcRequestBuilders.get("/users").param("name", "before"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$", hasSize(0)));
+    }
+
+    private JsonNode createUser(String name, String phone) throws Exception {
+        String body = mvc.perform(MockMvcRequestBuilders.post("/users")
+                .param("name", name)
+                .param("phone", phone))
+                .andExpect(MockMvcResultMatchers.status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return mapper.readTree(body);
+    }
+
+    private void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread) throws Exception;
+    }
+}
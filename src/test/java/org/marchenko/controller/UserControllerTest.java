@@ -4,6 +4,8 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.marchenko.exception.CreateException;
 import org.marchenko.exception.NotFoundException;
+import org.marchenko.exception.PreconditionFailed;
+import org.marchenko.model.OperationResult;
 import org.marchenko.model.User;
 import org.marchenko.service.UserService;
 import org.mockito.Mockito;
@@ -11,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
@@ -76,6 +79,42 @@ public class UserControllerTest {
         Mockito.verify(userService).findUsersByName(Mockito.anyString(), Mockito.anyInt(), Mockito.anyInt());
     }
 
+    @Test
+    public void testGetUsersWhenAfterSetThenGetNextPageWithCursor() throws Exception {
+        List<User> users = Arrays.asList(
+                new User(4L, "user4", "phone4"),
+                new User(7L, "user7", "phone7")
+        );
+
+        Mockito.when(userService.findUsersAfter(3L, 2)).thenReturn(users);
+
+        mvc.perform(MockMvcRequestBuilders.get("/users")
+                .param("after", "3")
+                .param("pageSize", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor", "7"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id", contains(4, 7)));
+
+        Mockito.verify(userService).findUsersAfter(3L, 2);
+        Mockito.verify(userService, Mockito.never()).findAllUsers(Mockito.anyInt(), Mockito.anyInt());
+    }
+
+    @Test
+    public void testGetUsersWhenLastPageThenNoCursor() throws Exception {
+        List<User> users = Arrays.asList(new User(22L, "user22", "phone22"));
+
+        Mockito.when(userService.findUsersByNameAfter("2", 2L, 3)).thenReturn(users);
+
+        mvc.perform(MockMvcRequestBuilders.get("/users")
+                .param("name", "2")
+                .param("after", "2"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("X-Next-Cursor"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id", contains(22)));
+
+        Mockito.verify(userService).findUsersByNameAfter("2", 2L, 3);
+    }
+
     @Test
     public void createUserWhenUserNotExist() throws Exception {
         User user = new User(1L, "user", "phone");
@@ -107,6 +146,26 @@ public class UserControllerTest {
         Mockito.verify(userService).createUser(user.getName(), user.getPhone());
     }
 
+    @Test
+    public void applyOperationsReportsEachOutcome() throws Exception {
+        List<OperationResult<User>> results = Arrays.asList(
+                OperationResult.ok(HttpStatus.OK, new User(1L, "renamed", "phone")),
+                OperationResult.failed(new NotFoundException("missing"))
+        );
+
+        Mockito.when(userService.applyOperations(Mockito.anyList())).thenReturn(results);
+
+        mvc.perform(MockMvcRequestBuilders.post("/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"type\":\"UPDATE\",\"id\":1,\"name\":\"renamed\"},{\"type\":\"DELETE\",\"id\":2}]"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].status", contains(200, 404)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].value.name").value("renamed"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].error").value("missing"));
+
+        Mockito.verify(userService).applyOperations(Mockito.anyList());
+    }
+
     @Test
     public void testDeleteUserWhenUserIsExist() throws Exception {
         User user = new User(1L, "user", "phone");
@@ -152,6 +211,45 @@ public class UserControllerTest {
         Mockito.verify(userService).findUserById(Mockito.anyLong());
     }
 
+    @Test
+    public void findUserByIdRendersErrorBody() throws Exception {
+        Mockito.when(userService.findUserById(7L)).thenThrow(new NotFoundException("User with id 7 not found"));
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", 7L))
+                .andExpect(MockMvcResultMatchers.status().isNotFound())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.jsonPath("status").value(404))
+                .andExpect(MockMvcResultMatchers.jsonPath("error").value("Not Found"))
+                .andExpect(MockMvcResultMatchers.jsonPath("message").value("User with id 7 not found"))
+                .andExpect(MockMvcResultMatchers.jsonPath("path").value("/users/7"));
+    }
+
+    @Test
+    public void findUserByIdAnswersNotModifiedForCurrentETag() throws Exception {
+        User user = new User(1L, "user", "phone", 5L);
+
+        Mockito.when(userService.findUserById(user.getId())).thenReturn(user);
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", user.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", "\"5\""));
+
+        mvc.perform(MockMvcRequestBuilders.get("/users/{user_id}", user.getId())
+                .header("If-None-Match", "\"5\""))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+    }
+
+    @Test
+    public void updateUserWithStaleIfMatch() throws Exception {
+        Mockito.when(userService.updateUser(1L, "renamed", null, 4L)).thenThrow(PreconditionFailed.class);
+
+        mvc.perform(MockMvcRequestBuilders.patch("/users/{user_id}", 1L)
+                .header("If-Match", "\"4\"")
+                .param("name", "renamed"))
+                .andExpect(MockMvcResultMatchers.status().isPreconditionFailed());
+    }
+
     @Test
     public void updateUserWhenUserExist() throws Exception {
         User user = new User(1L, "user", "phone");
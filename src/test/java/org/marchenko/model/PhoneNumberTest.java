@@ -0,0 +1,38 @@
+package org.marchenko.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PhoneNumberTest {
+    @Test
+    public void formattingDoesNotChangeTheKey() {
+        long key = PhoneNumber.key("79001234567");
+        assertTrue(PhoneNumber.isNumber(key));
+        assertEquals(key, PhoneNumber.key("+7 (900) 123-45-67"));
+        assertEquals(key, PhoneNumber.key(" +7.900/123 45 67"));
+        assertEquals(new Record(1L, "Ann", "+7 900 123-45-67"), new Record(2L, "Ann", "79001234567"));
+    }
+
+    @Test
+    public void leadingZerosAndLengthCount() {
+        assertNotEquals(PhoneNumber.key("79"), PhoneNumber.key("079"));
+        assertNotEquals(PhoneNumber.key("0"), PhoneNumber.key("00"));
+        assertTrue(PhoneNumber.isNumber(PhoneNumber.key("999999999999999")));
+        assertNotEquals(PhoneNumber.key("999999999999999"), PhoneNumber.key("099999999999999"));
+    }
+
+    @Test
+    public void stringsThatAreNoNumberAreHashed() {
+        for (String phone : new String[]{"", "phone1", "7900+1", "++7900", "1234567890123456", "7 900 ext 1"}) {
+            long key = PhoneNumber.key(phone);
+            assertFalse(phone, PhoneNumber.isNumber(key));
+            assertEquals(key, PhoneNumber.key(new String(phone)));
+        }
+        assertNotEquals(PhoneNumber.key("phone1"), PhoneNumber.key("phone2"));
+        assertEquals(0, PhoneNumber.key(null));
+    }
+}
@@ -0,0 +1,111 @@
+package org.marchenko.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.model.Operation;
+import org.marchenko.model.Record;
+import org.marchenko.model.User;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class CachingServiceTest {
+    private CachingUserService userService;
+
+    private CachingRecordService recordService;
+
+    @Before
+    public void setUp() {
+        PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE);
+        recordService = new CachingRecordService(new RecordServiceImpl(storage), new LruCache<>(100, 0));
+        userService = new CachingUserService(new UserServiceImpl(storage), new LruCache<>(100, 0), recordService);
+    }
+
+    @Test
+    public void servesRepeatedReadsFromCache() {
+        User user = userService.createUser("Ann", "100");
+        User first = userService.findUserById(user.getId());
+        User second = userService.findUserById(user.getId());
+
+        assertSame(first, second);
+        assertEquals(1, userService.cache().missCount());
+        assertEquals(1, userService.cache().hitCount());
+    }
+
+    @Test
+    public void writesInvalidateCachedEntries() {
+        User user = userService.createUser("Ann", "100");
+        Record record = recordService.createRecord(user.getId(), "home", "1");
+        userService.findUserById(user.getId());
+        recordService.findRecordById(user.getId(), record.getId());
+
+        userService.updateUser(user.getId(), "Anna", null);
+        recordService.updateRecord(user.getId(), record.getId(), "work", null);
+
+        assertEquals("Anna", userService.findUserById(user.getId()).getName());
+        assertEquals("work", recordService.findRecordById(user.getId(), record.getId()).getName());
+
+        recordService.applyOperations(user.getId(),
+                Arrays.asList(new Operation(Operation.Type.UPDATE, record.getId(), "office", null)));
+        assertEquals("office", recordService.findRecordById(user.getId(), record.getId()).getName());
+    }
+
+    @Test
+    public void deletingUserDropsCachedRecords() {
+        User user = userService.createUser("Ann", "100");
+        Record record = recordService.createRecord(user.getId(), "home", "1");
+        recordService.findRecordById(user.getId(), record.getId());
+
+        userService.deleteUser(user.getId());
+
+        assertNotFound(() -> recordService.findRecordById(user.getId(), record.getId()));
+        assertNotFound(() -> userService.findUserById(user.getId()));
+        assertEquals(0, recordService.cache().hitCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAndExpiredEntries() {
+        AtomicLong now = new AtomicLong();
+        LruCache<Long, String> cache = new LruCache<>(16, 10, now::get);
+        // keys 0 and 16 share a segment holding a single entry
+        cache.get(0L, String::valueOf);
+        cache.get(16L, String::valueOf);
+        assertEquals(1, cache.evictionCount());
+        cache.get(16L, key -> {
+            throw new AssertionError("Expected a hit");
+        });
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertEquals("16", cache.get(16L, String::valueOf));
+        assertEquals(2, cache.evictionCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(3, cache.missCount());
+    }
+
+    @Test
+    public void doesNotStoreValueLoadedAcrossInvalidation() {
+        LruCache<Long, String> cache = new LruCache<>(100, 0);
+        cache.get(1L, key -> {
+            cache.invalidate(key);
+            return "stale";
+        });
+        assertEquals("fresh", cache.get(1L, key -> "fresh"));
+    }
+
+    private static void assertNotFound(Runnable call) {
+        try {
+            call.run();
+            fail("Expected NotFoundException");
+        } catch (NotFoundException expected) {
+            // expected
+        }
+    }
+}
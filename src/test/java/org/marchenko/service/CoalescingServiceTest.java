@@ -0,0 +1,188 @@
+package org.marchenko.service;
+
+import org.junit.After;
+import org.junit.Test;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.model.Record;
+import org.marchenko.storage.MutationLog;
+import org.marchenko.storage.PhoneBookStorage;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CoalescingServiceTest {
+    private static final int CALLERS = 8;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+
+    private final SingleFlight<String> flights = new SingleFlight<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallersShareOneCall() throws Exception {
+        Object result = new Object();
+        List<Future<Object>> callers = startCallers(() -> result);
+        awaitShared(CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> caller : callers) {
+            assertSame(result, caller.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void concurrentCallersShareTheFailure() throws Exception {
+        NotFoundException failure = new NotFoundException("missing");
+        List<Future<Object>> callers = startCallers(() -> {
+            throw failure;
+        });
+        awaitShared(CALLERS - 1);
+        release.countDown();
+
+        for (Future<Object> caller : callers) {
+            try {
+                caller.get(10, TimeUnit.SECONDS);
+                fail("NotFoundException expected");
+            } catch (ExecutionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void writesOnlyPartReadsOfTheirOwnUser() throws Exception {
+        Record record = new Record(10L, "Ann", "+1 100 000 0001", 1L);
+        RecordService delegate = Mockito.mock(RecordService.class);
+        Mockito.when(delegate.findRecordById(1L, 10L)).thenAnswer(invocation -> blocking(() -> record).get());
+        SingleFlight<List<Object>> recordFlights = new SingleFlight<>();
+        CoalescingRecordService records = new CoalescingRecordService(delegate, recordFlights);
+
+        Future<Record> first = executor.submit(() -> records.findRecordById(1L, 10L));
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        records.createRecord(2L, "Bob", "+1 100 000 0002");
+        Future<Record> joined = executor.submit(() -> records.findRecordById(1L, 10L));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (recordFlights.sharedCount() == 0) {
+            assertTrue("Read did not join the running call", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+
+        records.createRecord(1L, "Cid", "+1 100 000 0003");
+        Future<Record> parted = executor.submit(() -> records.findRecordById(1L, 10L));
+        while (calls.get() < 2) {
+            assertTrue("Read after the write did not run its own call", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        release.countDown();
+        for (Future<Record> caller : Arrays.asList(first, joined, parted)) {
+            assertSame(record, caller.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, recordFlights.sharedCount());
+    }
+
+    @Test
+    public void pagesAreNeverOlderThanTheVersionReadBeforeThem() throws Exception {
+        List<Record> before = Arrays.asList(new Record(10L, "Ann", "+1 100 000 0001", 1L));
+        List<Record> after = Arrays.asList(new Record(10L, "Ann", "+1 100 000 0001", 1L),
+                new Record(11L, "Bob", "+1 100 000 0002", 2L));
+        AtomicLong version = new AtomicLong(1);
+        RecordService delegate = Mockito.mock(RecordService.class);
+        Mockito.when(delegate.recordsVersion(1L)).thenAnswer(invocation -> version.get());
+        Mockito.when(delegate.findAllRecords(1L, 0, 3))
+                .thenAnswer(invocation -> blocking(() -> before).get())
+                .thenReturn(after);
+        CoalescingRecordService records = new CoalescingRecordService(delegate, new SingleFlight<>());
+
+        Future<List<Record>> first = executor.submit(() -> records.findAllRecords(1L, 0, 3));
+        while (calls.get() == 0) {
+            Thread.sleep(1);
+        }
+        // a write is visible but has not returned yet, its caller still waits for the log
+        version.set(2);
+        assertEquals(2, records.recordsVersion(1L));
+        assertEquals(after, executor.submit(() -> records.findAllRecords(1L, 0, 3)).get(10, TimeUnit.SECONDS));
+
+        release.countDown();
+        assertEquals(before, first.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void wiresBehindTheCacheOrOnItsOwn() {
+        ApplicationContextRunner runner = new ApplicationContextRunner()
+                .withBean(PhoneBookStorage.class, () -> new PhoneBookStorage(MutationLog.NONE))
+                .withUserConfiguration(RecordServiceImpl.class, UserServiceImpl.class,
+                        CacheConfiguration.class, CoalescingConfiguration.class)
+                .withPropertyValues("phonebook.coalescing.enabled=true");
+
+        runner.run(context -> {
+            assertTrue(context.getBean(RecordService.class) instanceof CoalescingRecordService);
+            assertTrue(context.getBean(UserService.class) instanceof CoalescingUserService);
+        });
+        runner.withPropertyValues("phonebook.cache.enabled=true").run(context -> {
+            assertTrue(context.getBean(RecordService.class) instanceof CachingRecordService);
+            UserService users = context.getBean(UserService.class);
+            assertTrue(users instanceof CachingUserService);
+            Long id = users.createUser("Ann", "+1 100 000 0001").getId();
+            assertEquals("Ann", users.findUserById(id).getName());
+            assertEquals(1, ((CachingUserService) users).cache().missCount());
+        });
+    }
+
+    private List<Future<Object>> startCallers(Supplier<Object> call) {
+        List<Future<Object>> callers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            callers.add(executor.submit(() -> flights.run("key", blocking(call))));
+        }
+        return callers;
+    }
+
+    private Supplier<Object> blocking(Supplier<Object> call) {
+        return () -> {
+            calls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return call.get();
+        };
+    }
+
+    private void awaitShared(int joined) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (flights.sharedCount() < joined) {
+            assertTrue("Callers did not join the running call", System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package org.marchenko.storage;
+
+import org.junit.Test;
+import org.marchenko.exception.Gone;
+import org.marchenko.model.Operation;
+import org.marchenko.model.Record;
+import org.marchenko.model.RecordChange;
+import org.marchenko.model.RecordChanges;
+import org.marchenko.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChangeFeedTest {
+    private final PhoneBookStorage storage = new PhoneBookStorage(ShardLogs.of(MutationLog.NONE), false, 3);
+
+    @Test
+    public void replaysChangesSinceASequence() {
+        User ann = storage.createUser("Ann", "100");
+        long start = storage.recordsVersion(ann.getId());
+        Record first = storage.createRecord(ann.getId(), "first", "1");
+        Record second = storage.createRecord(ann.getId(), "second", "2");
+        storage.updateRecord(ann.getId(), first.getId(), "renamed", null);
+
+        RecordChanges changes = storage.findRecordChanges(ann.getId(), start, 10);
+        assertEquals(Arrays.asList(Operation.Type.CREATE, Operation.Type.CREATE, Operation.Type.UPDATE),
+                types(changes.getChanges()));
+        assertEquals("renamed", changes.getChanges().get(2).getRecord().getName());
+        assertEquals(storage.recordsVersion(ann.getId()), changes.getSequence());
+
+        RecordChanges page = storage.findRecordChanges(ann.getId(), start, 1);
+        assertEquals((long) first.getId(), page.getChanges().get(0).getId());
+        assertEquals(first.getVersion(), page.getSequence());
+        RecordChanges rest = storage.findRecordChanges(ann.getId(), page.getSequence(), 10);
+        assertEquals(2, rest.getChanges().size());
+
+        storage.deleteRecord(ann.getId(), second.getId());
+        RecordChange deleted = storage.findRecordChanges(ann.getId(), changes.getSequence(), 10).getChanges().get(0);
+        assertEquals(Operation.Type.DELETE, deleted.getType());
+        assertEquals((long) second.getId(), deleted.getId());
+        assertNull(deleted.getRecord());
+        assertTrue(storage.findRecordChanges(ann.getId(), storage.recordsVersion(ann.getId()), 10)
+                .getChanges().isEmpty());
+    }
+
+    @Test
+    public void dropsTheOldestChanges() {
+        User ann = storage.createUser("Ann", "100");
+        long start = storage.recordsVersion(ann.getId());
+        for (int i = 0; i < 4; i++) {
+            storage.createRecord(ann.getId(), "record" + i, "phone" + i);
+        }
+
+        try {
+            storage.findRecordChanges(ann.getId(), start, 10);
+            fail("Gone expected");
+        } catch (Gone expected) {
+            // the first change no longer fits
+        }
+        RecordChanges kept = storage.findRecordChanges(ann.getId(), start + 1, 10);
+        assertEquals(3, kept.getChanges().size());
+    }
+
+    @Test
+    public void wakesWaitersOnChange() {
+        User ann = storage.createUser("Ann", "100");
+        long version = storage.recordsVersion(ann.getId());
+        CompletableFuture<Void> changed = storage.awaitRecordChange(ann.getId(), version);
+        assertFalse(changed.isDone());
+
+        storage.createRecord(ann.getId(), "first", "1");
+        assertTrue(changed.isDone());
+        assertTrue(storage.awaitRecordChange(ann.getId(), version).isDone());
+
+        CompletableFuture<Void> deleted = storage.awaitRecordChange(ann.getId(), storage.recordsVersion(ann.getId()));
+        storage.deleteUser(ann.getId());
+        assertTrue(deleted.isDone());
+    }
+
+    private static List<Operation.Type> types(List<RecordChange> changes) {
+        List<Operation.Type> types = new ArrayList<>();
+        for (RecordChange change : changes) {
+            types.add(change.getType());
+        }
+        return types;
+    }
+}
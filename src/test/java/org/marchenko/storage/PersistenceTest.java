@@ -0,0 +1,368 @@
+package org.marchenko.storage;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.marchenko.exception.CreateException;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.model.PhoneHolder;
+import org.marchenko.model.Record;
+import org.marchenko.model.User;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistenceTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Persistence> opened = new ArrayList<>();
+
+    private PhoneBookStorage storage;
+
+    private Persistence persistence;
+
+    private WriteAheadLog writeAheadLog;
+
+    private ShardLogs<WriteAheadLog> shardLogs;
+
+    @After
+    public void closeAll() {
+        for (Persistence persistence : opened) {
+            try {
+                persistence.shutdown();
+            } catch (RuntimeException ignored) {
+                // already closed by the test
+            }
+        }
+    }
+
+    @Test
+    public void restoresStateAfterCleanShutdown() throws Exception {
+        open();
+        User ann = storage.createUser("Ann", "100");
+        User bob = storage.createUser("Bob", "200");
+        Record first = storage.createRecord(ann.getId(), "first", "1");
+        Record second = storage.createRecord(ann.getId(), "second", "2");
+        storage.updateRecord(ann.getId(), second.getId(), "renamed", "22");
+        storage.deleteRecord(ann.getId(), first.getId());
+        storage.updateUser(bob.getId(), "Robert", null);
+        persistence.shutdown();
+
+        open();
+        assertEquals("Robert", storage.findUser(bob.getId()).getName());
+        assertEquals("renamed", storage.findRecordByPhone(ann.getId(), "22").getName());
+        assertEquals(1, storage.findRecords(ann.getId(), 0, 10).size());
+        assertEquals(bob.getId() + 1, storage.createUser("Carl", "300").getId().longValue());
+        assertTrue(storage.createRecord(bob.getId(), "third", "3").getId() > second.getId());
+    }
+
+    @Test
+    public void replaysLogAfterCrashAndDropsTornTail() throws Exception {
+        open();
+        User ann = storage.createUser("Ann", "100");
+        storage.createRecord(ann.getId(), "first", "1");
+        User bob = storage.createUser("Bob", "200");
+        storage.deleteUser(bob.getId());
+        crash();
+        try (FileChannel segment = FileChannel.open(lastSegment(), StandardOpenOption.APPEND)) {
+            segment.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2, 3}));
+        }
+
+        open();
+        assertEquals("first", storage.findRecordByPhone(ann.getId(), "1").getName());
+        assertEquals(1, storage.userCount());
+        assertNotFound(() -> storage.findUser(bob.getId()));
+        storage.createRecord(ann.getId(), "second", "2");
+        crash();
+
+        open();
+        assertEquals(2, storage.findRecords(ann.getId(), 0, 10).size());
+    }
+
+    @Test
+    public void combinesSnapshotWithLogTail() throws Exception {
+        open();
+        User ann = storage.createUser("Ann", "100");
+        Record first = storage.createRecord(ann.getId(), "first", "1");
+        assertTrue(persistence.snapshot());
+        storage.deleteRecord(ann.getId(), first.getId());
+        storage.createRecord(ann.getId(), "again", "1");
+        crash();
+
+        open();
+        assertEquals("again", storage.findRecordByPhone(ann.getId(), "1").getName());
+        assertEquals(1, storage.findRecords(ann.getId(), 0, 10).size());
+    }
+
+    @Test
+    public void carriesUntouchedBooksIntoNextSnapshot() throws Exception {
+        open();
+        User ann = storage.createUser("Ann", "100");
+        User bob = storage.createUser("Bob", "200");
+        for (int i = 0; i < 100; i++) {
+            storage.createRecord(ann.getId(), "name" + i, "phone" + i);
+        }
+        storage.createRecord(bob.getId(), "first", "1");
+        persistence.shutdown();
+
+        open();
+        storage.createRecord(bob.getId(), "second", "2");
+        persistence.shutdown();
+
+        open();
+        assertEquals(100, storage.findRecords(ann.getId(), 0, 1000).size());
+        assertEquals("name42", storage.findRecordByPhone(ann.getId(), "phone42").getName());
+        assertEquals(2, storage.findRecords(bob.getId(), 0, 10).size());
+    }
+
+    @Test
+    public void rebuildsPhoneDirectoryFromSnapshotAndLog() throws Exception {
+        open();
+        User ann = storage.createUser("Ann", "100");
+        User bob = storage.createUser("Bob", "200");
+        Record annsPlumber = storage.createRecord(ann.getId(), "plumber", "555");
+        Record bobsPlumber = storage.createRecord(bob.getId(), "plumber", "556");
+        assertTrue(persistence.snapshot());
+        storage.updateRecord(bob.getId(), bobsPlumber.getId(), null, "555");
+        crash();
+
+        open();
+        assertEquals(Arrays.asList(new PhoneHolder(ann.getId(), annsPlumber.getId()),
+                new PhoneHolder(bob.getId(), bobsPlumber.getId())), storage.findPhoneHolders("555", 0, 10));
+        assertEquals(0, storage.findPhoneHolders("556", 0, 10).size());
+        storage.deleteUser(ann.getId());
+        storage.reclaim(10);
+        assertEquals(1, storage.phoneDirectorySize());
+    }
+
+    @Test
+    public void reclaimsUndecodedBookWithinBudget() throws Exception {
+        open();
+        User ann = storage.createUser("Ann", "100");
+        for (int i = 0; i < 25; i++) {
+            storage.createRecord(ann.getId(), "name" + i, "phone" + i);
+        }
+        assertTrue(persistence.snapshot());
+        crash();
+
+        open();
+        storage.deleteUser(ann.getId());
+        assertEquals(25, storage.phoneDirectorySize());
+        assertEquals(10, storage.reclaim(10));
+        assertEquals(15, storage.phoneDirectorySize());
+        assertEquals(10, storage.reclaim(10));
+        assertEquals(5, storage.reclaim(10));
+        assertEquals(0, storage.phoneDirectorySize());
+        assertEquals(0, storage.tombstoneCount());
+    }
+
+    @Test
+    public void appendsFailOnceTheLogFailed() throws Exception {
+        Path directory = folder.newFolder("failing").toPath();
+        WriteAheadLog failing = new WriteAheadLog(directory, false);
+        failing.open(0);
+        failing.putUser(new User(1L, "Ann", "100"));
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory)) {
+            for (Path segment : segments) {
+                Files.delete(segment);
+            }
+        }
+        Files.delete(directory);
+        try {
+            failing.rotate();
+            fail("IOException expected");
+        } catch (IOException expected) {
+            // the next segment cannot be created
+        }
+        try {
+            failing.putUser(new User(2L, "Bob", "200"));
+            fail("UncheckedIOException expected");
+        } catch (UncheckedIOException expected) {
+            // not acknowledged
+        }
+        failing.close();
+    }
+
+    @Test
+    public void concurrentWritersAreAllDurable() throws Exception {
+        open();
+        int threads = 8;
+        int perThread = 250;
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            userIds.add(storage.createUser("user" + i, "phone" + i).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long userId = userIds.get(i);
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < perThread; j++) {
+                        storage.createRecord(userId, "name" + j, "phone" + j);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        crash();
+
+        open();
+        for (long userId : userIds) {
+            assertEquals(perThread, storage.findRecords(userId, 0, perThread + 1).size());
+        }
+    }
+
+    @Test
+    public void deferredWritesCompleteOnceDurable() throws Exception {
+        open();
+        DeferredDurability deferred = DeferredDurability.begin();
+        User ann;
+        try {
+            ann = storage.createUser("Ann", "100");
+            storage.createRecord(ann.getId(), "first", "1");
+        } finally {
+            deferred.end();
+        }
+        assertFalse(deferred.isEmpty());
+        deferred.whenDurable().get(10, TimeUnit.SECONDS);
+        assertTrue(deferred.whenDurable().isDone());
+        crash();
+
+        open();
+        assertEquals("first", storage.findRecordByPhone(ann.getId(), "1").getName());
+    }
+
+    @Test
+    public void recoversEveryShard() throws Exception {
+        openShards(3);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            User user = storage.createUser("user" + i, "phone" + i);
+            storage.createRecord(user.getId(), "record" + i, "1");
+            users.add(user);
+        }
+        assertTrue(persistence.snapshot());
+        storage.deleteUser(users.get(1).getId());
+        storage.createRecord(users.get(2).getId(), "after snapshot", "2");
+        crash();
+
+        openShards(3);
+        assertEquals(5, storage.userCount());
+        assertEquals(2, storage.findRecords(users.get(2).getId(), 0, 10).size());
+        assertEquals("record5", storage.findRecordByPhone(users.get(5).getId(), "1").getName());
+        assertNotFound(() -> storage.findUser(users.get(1).getId()));
+        assertTrue(storage.createUser("next", "next").getId() > users.get(5).getId());
+    }
+
+    @Test
+    public void phoneOwnershipFollowsFinalStateAcrossShards() throws Exception {
+        openShards(2);
+        User ann = storage.createUser("Ann", "111");
+        User bob = storage.createUser("Bob", "222");
+        storage.updateUser(ann.getId(), null, "333");
+        storage.updateUser(bob.getId(), null, "111");
+        crash();
+
+        openShards(2);
+        assertEquals(bob.getId(), storage.findUserByPhone("111").getId());
+        assertEquals(ann.getId(), storage.findUserByPhone("333").getId());
+        assertNotFound(() -> storage.findUserByPhone("222"));
+        try {
+            storage.createUser("Cid", "111");
+            fail("CreateException expected");
+        } catch (CreateException expected) {
+            // Bob holds the number
+        }
+    }
+
+    @Test
+    public void refusesDataOfAnotherShardCount() throws Exception {
+        open();
+        storage.createUser("Ann", "100");
+        persistence.shutdown();
+
+        try {
+            new PersistenceConfiguration().writeAheadLogs(folder.getRoot().toString(), true, 2);
+            throw new AssertionError("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+            // one shard wrote here
+        }
+    }
+
+    private void open() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        writeAheadLog = new WriteAheadLog(directory, true);
+        storage = new PhoneBookStorage(writeAheadLog);
+        persistence = new Persistence(storage, ShardLogs.of(writeAheadLog), 3600, true);
+        persistence.recover();
+        opened.add(persistence);
+    }
+
+    private void openShards(int shards) throws IOException {
+        ShardLogs<WriteAheadLog> logs = new PersistenceConfiguration()
+                .writeAheadLogs(folder.getRoot().toString(), true, shards);
+        storage = new PhoneBookStorage(logs, false);
+        persistence = new Persistence(storage, logs, 3600, true);
+        persistence.recover();
+        opened.add(persistence);
+        shardLogs = logs;
+    }
+
+    private void crash() {
+        if (shardLogs != null) {
+            for (int i = 0; i < shardLogs.size(); i++) {
+                shardLogs.get(i).close();
+            }
+            shardLogs = null;
+        } else {
+            writeAheadLog.close();
+        }
+        opened.remove(persistence);
+    }
+
+    private Path lastSegment() throws IOException {
+        Path last = null;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(folder.getRoot().toPath(), "wal-*.log")) {
+            for (Path segment : segments) {
+                if (last == null || segment.compareTo(last) > 0) {
+                    last = segment;
+                }
+            }
+        }
+        return last;
+    }
+
+    private static void assertNotFound(Runnable action) {
+        try {
+            action.run();
+        } catch (NotFoundException e) {
+            return;
+        }
+        throw new AssertionError("NotFoundException expected");
+    }
+}
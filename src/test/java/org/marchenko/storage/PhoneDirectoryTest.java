@@ -0,0 +1,98 @@
+package org.marchenko.storage;
+
+import org.junit.Test;
+import org.marchenko.model.PhoneHolder;
+import org.marchenko.model.Record;
+import org.marchenko.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PhoneDirectoryTest {
+    private final PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE);
+
+    @Test
+    public void findsHoldersAcrossUsersWhateverTheFormatting() {
+        User ann = storage.createUser("Ann", "+1 100 000 0001");
+        User bob = storage.createUser("Bob", "+1 100 000 0002");
+        Record annsPlumber = storage.createRecord(ann.getId(), "plumber", "+7 (900) 123-45-67");
+        storage.createRecord(ann.getId(), "other", "+7 900 000 00 00");
+        Record bobsPlumber = storage.createRecord(bob.getId(), "plumber", "79001234567");
+
+        assertEquals(Arrays.asList(new PhoneHolder(ann.getId(), annsPlumber.getId()),
+                new PhoneHolder(bob.getId(), bobsPlumber.getId())),
+                storage.findPhoneHolders("7.900.123.45.67", 0, 10));
+        assertEquals(Arrays.asList(new PhoneHolder(bob.getId(), bobsPlumber.getId())),
+                storage.findPhoneHolders("+79001234567", annsPlumber.getId(), 10));
+        assertEquals(bob.getId(), storage.findUserByPhone("11000000002").getId());
+        assertEquals(3, storage.phoneDirectorySize());
+    }
+
+    @Test
+    public void followsUpdatesAndDeletes() {
+        User ann = storage.createUser("Ann", "+1 100 000 0001");
+        Record record = storage.createRecord(ann.getId(), "plumber", "+1 555 000 0001");
+
+        storage.updateRecord(ann.getId(), record.getId(), null, "+1 555 000 0002");
+        assertEquals(0, storage.findPhoneHolders("+1 555 000 0001", 0, 10).size());
+        assertEquals(1, storage.findPhoneHolders("+1 555 000 0002", 0, 10).size());
+
+        storage.updateRecord(ann.getId(), record.getId(), "renamed", null);
+        assertEquals(1, storage.findPhoneHolders("+1 555 000 0002", 0, 10).size());
+
+        storage.deleteRecord(ann.getId(), record.getId());
+        assertEquals(0, storage.findPhoneHolders("+1 555 000 0002", 0, 10).size());
+        assertEquals(0, storage.phoneDirectorySize());
+    }
+
+    @Test
+    public void pagesAPopularNumberInRecordIdOrder() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            User user = storage.createUser("user" + i, String.format("+1 100 000 %04d", i));
+            Record moved = storage.createRecord(user.getId(), "moved", "+1 800 000 0001");
+            Record popular = storage.createRecord(user.getId(), "popular", "+1 800 000 0000");
+            if (i % 3 == 0) {
+                storage.deleteRecord(user.getId(), popular.getId());
+                storage.updateRecord(user.getId(), moved.getId(), null, "+1 800 000 0000");
+                expected.add(moved.getId());
+            } else {
+                expected.add(popular.getId());
+            }
+        }
+        expected.sort(null);
+
+        List<Long> paged = new ArrayList<>();
+        long after = 0;
+        List<PhoneHolder> page;
+        do {
+            page = storage.findPhoneHolders("+1 800 000 0000", after, 7);
+            for (PhoneHolder holder : page) {
+                paged.add(holder.getRecordId());
+                after = holder.getRecordId();
+            }
+        } while (page.size() == 7);
+        assertEquals(expected, paged);
+    }
+
+    @Test
+    public void skipsDeletedUsersUntilReclaimed() {
+        User ann = storage.createUser("Ann", "+1 100 000 0001");
+        User bob = storage.createUser("Bob", "+1 100 000 0002");
+        for (int i = 0; i < 10; i++) {
+            storage.createRecord(ann.getId(), "ann" + i, "+1 555 000 000" + i);
+        }
+        Record kept = storage.createRecord(bob.getId(), "kept", "+1 555 000 0003");
+
+        storage.deleteUser(ann.getId());
+        assertEquals(Arrays.asList(new PhoneHolder(bob.getId(), kept.getId())),
+                storage.findPhoneHolders("+1 555 000 0003", 0, 10));
+        assertEquals(11, storage.phoneDirectorySize());
+
+        storage.reclaim(100);
+        assertEquals(1, storage.phoneDirectorySize());
+    }
+}
@@ -0,0 +1,42 @@
+package org.marchenko.storage;
+
+import org.junit.Test;
+import org.marchenko.exception.NotFoundException;
+import org.marchenko.model.User;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ReclaimTest {
+    private final PhoneBookStorage storage = new PhoneBookStorage(MutationLog.NONE);
+
+    @Test
+    public void deletedUserDisappearsBeforeItsRecordsAreReclaimed() {
+        User ann = storage.createUser("Ann", "100");
+        User bob = storage.createUser("Bob", "200");
+        for (int i = 0; i < 25; i++) {
+            storage.createRecord(ann.getId(), "ann" + i, "phone" + i);
+            storage.createRecord(bob.getId(), "bob" + i, "phone" + i);
+        }
+
+        storage.deleteUser(ann.getId());
+        storage.deleteUser(bob.getId());
+        try {
+            storage.findRecordByPhone(ann.getId(), "phone1");
+            fail("NotFoundException expected");
+        } catch (NotFoundException expected) {
+            // unlinked right away
+        }
+        assertEquals(0, storage.recordCount());
+        assertEquals(2, storage.tombstoneCount());
+
+        assertEquals(10, storage.reclaim(10));
+        assertEquals(2, storage.tombstoneCount());
+        assertEquals(30, storage.reclaim(30));
+        assertEquals(1, storage.tombstoneCount());
+        assertEquals(10, storage.reclaim(30));
+        assertEquals(0, storage.tombstoneCount());
+        assertEquals(0, storage.reclaim(30));
+        assertEquals("200", storage.createUser("Carl", "200").getPhone());
+    }
+}
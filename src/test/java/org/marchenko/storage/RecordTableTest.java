@@ -0,0 +1,164 @@
+package org.marchenko.storage;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.marchenko.model.PhoneNumber;
+import org.marchenko.model.Record;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(Parameterized.class)
+public class RecordTableTest {
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> tables() {
+        return Arrays.asList(
+                new Object[]{"tree", (Supplier<RecordTable>) TreeRecordTable::new},
+                new Object[]{"compact", (Supplier<RecordTable>) CompactRecordTable::new});
+    }
+
+    private final RecordTable table;
+
+    public RecordTableTest(String name, Supplier<RecordTable> tables) {
+        this.table = tables.get();
+    }
+
+    @Test
+    public void putsReplacesAndRemoves() {
+        assertNull(table.put(new Record(5L, "five", "555", 1)));
+        assertNull(table.put(new Record(2L, "два", "222", 2)));
+
+        assertEquals("два", table.get(2L).getName());
+        assertEquals(2L, table.get(2L).getVersion());
+        assertEquals(5L, table.idByPhone(PhoneNumber.key("555")));
+
+        Record previous = table.put(new Record(5L, "five", "556", 3));
+        assertEquals("555", previous.getPhone());
+        assertEquals(RecordTable.NONE, table.idByPhone(PhoneNumber.key("555")));
+        assertEquals(5L, table.idByPhone(PhoneNumber.key("556")));
+
+        assertEquals("five", table.remove(5L).getName());
+        assertNull(table.remove(5L));
+        assertEquals(RecordTable.NONE, table.idByPhone(PhoneNumber.key("556")));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void pagesInIdOrder() {
+        for (long id : new long[]{9, 3, 7, 1, 5}) {
+            table.put(new Record(id, "name" + id, "phone" + id));
+        }
+
+        assertEquals(Arrays.asList(5L, 7L), ids(table.page(2, 2)));
+        assertEquals(Arrays.asList(9L), ids(table.page(4, 2)));
+        assertEquals(Arrays.asList(), ids(table.page(10, 2)));
+        assertEquals(Arrays.asList(5L, 7L, 9L), ids(table.pageAfter(4, 10)));
+        assertEquals(Arrays.asList(7L), ids(table.pageAfter(5, 1)));
+    }
+
+    @Test
+    public void phoneIndexFollowsLatestPut() {
+        table.put(new Record(1L, "first", "same"));
+        table.put(new Record(2L, "second", "same"));
+        assertEquals(2L, table.idByPhone(PhoneNumber.key("same")));
+
+        table.remove(1L);
+        assertEquals(2L, table.idByPhone(PhoneNumber.key("same")));
+    }
+
+    @Test
+    public void indexesPhonesByCanonicalKey() {
+        table.put(new Record(1L, "first", "+7 (900) 123-45-67"));
+        assertEquals(1L, table.idByPhone(PhoneNumber.key("79001234567")));
+
+        table.put(new Record(1L, "first", "7 900 123 45 67"));
+        assertEquals(1L, table.idByPhone(PhoneNumber.key("+79001234567")));
+        assertEquals("7 900 123 45 67", table.get(1L).getPhone());
+
+        table.remove(1L);
+        assertEquals(RecordTable.NONE, table.idByPhone(PhoneNumber.key("79001234567")));
+    }
+
+    @Test
+    public void truncatesFromTheHighestId() {
+        for (long id = 1; id <= 5; id++) {
+            table.put(new Record(id, "name" + id, "phone" + id));
+        }
+
+        List<Long> truncated = new ArrayList<>();
+        assertEquals(2, table.truncate(2, (id, phoneKey) -> {
+            assertEquals(PhoneNumber.key("phone" + id), phoneKey);
+            truncated.add(id);
+        }));
+        assertEquals(Arrays.asList(5L, 4L), truncated);
+        assertEquals(Arrays.asList(1L, 2L, 3L), ids(table.page(0, 10)));
+        assertEquals(RecordTable.NONE, table.idByPhone(PhoneNumber.key("phone5")));
+        assertEquals(3L, table.idByPhone(PhoneNumber.key("phone3")));
+        assertEquals(3, table.truncate(10, (id, phoneKey) -> {
+        }));
+        assertEquals(0, table.size());
+        assertEquals(RecordTable.NONE, table.idByPhone(PhoneNumber.key("phone1")));
+    }
+
+    @Test
+    public void matchesReferenceUnderRandomChanges() {
+        Random random = new Random(13);
+        TreeMap<Long, Record> expected = new TreeMap<>();
+        Map<String, Long> expectedPhones = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long id = 1 + random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                Record removed = expected.remove(id);
+                if (removed != null) {
+                    expectedPhones.remove(removed.getPhone());
+                }
+                assertEquals(removed == null ? null : removed.getName(), name(table.remove(id)));
+            } else {
+                String phone = "+7" + random.nextInt(2000);
+                Long owner = expectedPhones.get(phone);
+                if (owner != null && owner != id) {
+                    continue;
+                }
+                Record record = new Record(id, "name" + i, phone, i);
+                Record previous = expected.put(id, record);
+                if (previous != null) {
+                    expectedPhones.remove(previous.getPhone());
+                }
+                expectedPhones.put(phone, id);
+                assertEquals(previous == null ? null : previous.getName(), name(table.put(record)));
+            }
+            if (i % 1000 == 0) {
+                for (int p = 0; p < 2000; p++) {
+                    Long owner = expectedPhones.get("+7" + p);
+                    assertEquals(owner == null ? RecordTable.NONE : owner, table.idByPhone(PhoneNumber.key("+7" + p)));
+                }
+            }
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), ids(table.page(0, Integer.MAX_VALUE)));
+        for (Record record : expected.values()) {
+            assertEquals(record, table.get(record.getId()));
+        }
+    }
+
+    private static List<Long> ids(List<Record> records) {
+        List<Long> ids = new ArrayList<>();
+        for (Record record : records) {
+            ids.add(record.getId());
+        }
+        return ids;
+    }
+
+    private static String name(Record record) {
+        return record == null ? null : record.getName();
+    }
+}
@@ -0,0 +1,55 @@
+package org.marchenko.storage;
+
+import org.junit.Test;
+import org.marchenko.exception.CreateException;
+import org.marchenko.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ShardingTest {
+    private final PhoneBookStorage storage = new PhoneBookStorage(ShardLogs.none(3), false);
+
+    @Test
+    public void pagesAcrossShardsInIdOrder() {
+        for (int i = 1; i <= 10; i++) {
+            storage.createUser(i % 2 == 0 ? "Even " + i : "Odd " + i, "phone" + i);
+        }
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L), ids(storage.findUsers(0, 4)));
+        assertEquals(Arrays.asList(9L, 10L), ids(storage.findUsers(2, 4)));
+        assertEquals(Arrays.asList(6L, 7L, 8L), ids(storage.findUsersAfter(5, 3)));
+        assertEquals(Arrays.asList(2L, 4L, 6L), ids(storage.findUsersByName("even", 0, 3)));
+        assertEquals(Arrays.asList(8L, 10L), ids(storage.findUsersByName("even", 1, 3)));
+        assertEquals(Arrays.asList(7L, 9L), ids(storage.findUsersByNameAfter("odd", 5, 3)));
+        assertEquals(10, storage.userCount());
+    }
+
+    @Test
+    public void keepsPhonesUniqueAcrossShards() {
+        User first = storage.createUser("First", "shared");
+        User second = storage.createUser("Second", "other");
+        try {
+            storage.updateUser(second.getId(), null, "shared");
+            fail("CreateException expected");
+        } catch (CreateException expected) {
+            // the phone belongs to a user of another shard
+        }
+
+        storage.deleteUser(first.getId());
+        assertEquals("shared", storage.updateUser(second.getId(), null, "shared").getPhone());
+        assertEquals(Arrays.asList(second.getId()), ids(storage.findUsers(0, 10)));
+    }
+
+    private static List<Long> ids(List<User> users) {
+        List<Long> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}